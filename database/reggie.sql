@@ -72,7 +72,8 @@ create table dish
     update_user bigint         not null comment '修改人',
     is_deleted  int default 0  not null comment '是否删除',
     constraint idx_dish_name
-        unique (name)
+        unique (name),
+    index idx_dish_update_time (update_time, id)
 )
     comment '菜品管理' collate = utf8mb3_bin;
 
@@ -107,7 +108,8 @@ create table employee
     create_user bigint        not null comment '创建人',
     update_user bigint        not null comment '修改人',
     constraint idx_username
-        unique (username)
+        unique (username),
+    index idx_employee_update_time (update_time, id)
 )
     comment '员工信息' collate = utf8mb3_bin;
 
@@ -122,7 +124,8 @@ create table order_detail
     setmeal_id  bigint         null comment '套餐id',
     dish_flavor varchar(50)    null comment '口味',
     number      int default 1  not null comment '数量',
-    amount      decimal(10, 2) not null comment '金额'
+    amount      decimal(10, 2) not null comment '金额',
+    index idx_order_detail_order_id (order_id)
 )
     comment '订单明细表' collate = utf8mb3_bin;
 
@@ -142,7 +145,14 @@ create table orders
     phone           varchar(255)   null,
     address         varchar(255)   null,
     user_name       varchar(255)   null,
-    consignee       varchar(255)   null
+    consignee       varchar(255)   null,
+    constraint idx_orders_number
+        unique (number),
+    index idx_orders_user_order_time (user_id, order_time, id),
+    index idx_orders_order_time (order_time, id),
+    index idx_orders_status_order_time (status, order_time, id),
+    index idx_orders_phone_order_time (phone, order_time, id),
+    index idx_orders_consignee_order_time (consignee, order_time, id)
 )
     comment '订单表' collate = utf8mb3_bin;
 
@@ -163,7 +173,8 @@ create table setmeal
     update_user bigint         not null comment '修改人',
     is_deleted  int default 0  not null comment '是否删除',
     constraint idx_setmeal_name
-        unique (name)
+        unique (name),
+    index idx_setmeal_update_time (update_time, id)
 )
     comment '套餐' collate = utf8mb3_bin;
 
@@ -197,7 +208,10 @@ create table shopping_cart
     dish_flavor varchar(50)    null comment '口味',
     number      int default 1  not null comment '数量',
     amount      decimal(10, 2) not null comment '金额',
-    create_time datetime       null comment '创建时间'
+    create_time datetime       null comment '创建时间',
+    item_key    varchar(100) as (concat(ifnull(dish_id, ''), '_', ifnull(setmeal_id, ''), '_', ifnull(dish_flavor, ''))) stored comment '购物车项标识',
+    constraint idx_shopping_cart_item
+        unique (user_id, item_key)
 )
     comment '购物车' collate = utf8mb3_bin;
 
@@ -0,0 +1,114 @@
+package reggietakeout.cache;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 事务感知的菜单缓存失效组件
+ * <p>
+ * 事务中登记的缓存键不会立即删除，而是在事务提交后删除一次，并在配置的延迟后再删除一次（延迟双删）
+ * 第一次删除保证提交后的读请求回源到新数据；第二次删除清除并发读请求在提交前读到旧数据、又在删除之后才写回的缓存
+ * 事务回滚时不做任何删除，不在事务中调用时立即删除并同样安排延迟删除
+ */
+@Component
+@Slf4j
+public class CacheInvalidator {
+    // 事务资源键，用于在同一事务中累积待删除的缓存键
+    private static final Object RESOURCE_KEY = CacheInvalidator.class;
+
+    @Autowired
+    private MenuCache menuCache;
+
+    // 第二次删除相对于第一次删除的延迟
+    @Value("${reggie.cache.double-delete-delay-millis:500}")
+    private long doubleDeleteDelayMillis;
+
+    // 执行延迟删除的调度线程
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "cache-double-delete");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * 登记需要失效的缓存键
+     * 同一事务中多次登记的键会合并，在事务提交后统一删除
+     *
+     * @param keys 逻辑缓存键
+     */
+    public void invalidate(String... keys) {
+        invalidate(List.of(keys));
+    }
+
+    /**
+     * 登记需要失效的缓存键
+     *
+     * @param keys 逻辑缓存键
+     */
+    public void invalidate(Collection<String> keys) {
+        if (keys.isEmpty())
+            return;
+
+        // 不在事务中时立即删除
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            evictTwice(keys.toArray(String[]::new));
+            return;
+        }
+
+        // 第一次登记时绑定键集合并注册事务同步，之后的登记只向集合中追加
+        @SuppressWarnings("unchecked")
+        Set<String> pending = (Set<String>) TransactionSynchronizationManager.getResource(RESOURCE_KEY);
+        if (pending == null) {
+            Set<String> registered = new LinkedHashSet<>();
+            pending = registered;
+            TransactionSynchronizationManager.bindResource(RESOURCE_KEY, registered);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evictTwice(registered.toArray(String[]::new));
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(RESOURCE_KEY);
+                }
+            });
+        }
+        pending.addAll(keys);
+    }
+
+    /**
+     * 立即删除一次缓存，并安排延迟后的第二次删除
+     *
+     * @param keys 逻辑缓存键
+     */
+    private void evictTwice(String[] keys) {
+        menuCache.evict(keys);
+
+        scheduler.schedule(() -> {
+            try {
+                menuCache.evict(keys);
+            } catch (Exception e) {
+                log.warn("延迟删除缓存失败：{}", e.getMessage());
+            }
+        }, doubleDeleteDelayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdown();
+    }
+}
@@ -0,0 +1,134 @@
+package reggietakeout.cache;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+import reggietakeout.entity.Category;
+import reggietakeout.service.CategoryService;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Component
+@Slf4j
+public class CategoryDictionary implements MessageListener {
+    // 分类变更广播频道
+    public static final String REFRESH_CHANNEL = "category_refresh";
+
+    @Autowired
+    private CategoryService categoryService;
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+    @Autowired
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    // 分类快照，刷新时整体替换，读取无需加锁
+    private volatile Snapshot snapshot;
+
+    /**
+     * 订阅分类变更广播，其他节点修改分类时重新加载本节点的字典
+     */
+    @PostConstruct
+    public void init() {
+        redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(REFRESH_CHANNEL));
+    }
+
+    /**
+     * 根据分类ID获取分类名称，不产生任何I/O
+     * 字典中不存在该分类时重新加载一次，以兼容刚刚新增、尚未收到广播的分类；
+     * 重新加载后仍不存在的分类（例如已被删除）记入当前快照的缺失集合，在下一次刷新前不再触发加载
+     *
+     * @param categoryId 分类ID
+     * @return 分类名称，分类不存在时返回null
+     */
+    public String getName(Long categoryId) {
+        if (categoryId == null)
+            return null;
+
+        Snapshot current = snapshot();
+        Category category = current.categories().get(categoryId);
+        if (category == null && !current.missing().contains(categoryId))
+            category = reloadOnMiss(current, categoryId);
+
+        return category == null ? null : category.getName();
+    }
+
+    /**
+     * 分类发生新增、修改或删除后调用，重新加载本节点的字典并广播通知其他节点
+     */
+    public void refresh() {
+        reload();
+        stringRedisTemplate.convertAndSend(REFRESH_CHANNEL, "refresh");
+    }
+
+    /**
+     * 接收其他节点的分类变更广播，重新加载本节点的字典
+     *
+     * @param message 消息内容，此处未使用
+     * @param pattern 订阅模式，此处未使用
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        log.debug("收到分类变更广播，重新加载分类字典");
+        reload();
+    }
+
+    /**
+     * 获取当前的分类快照，首次访问时加载
+     *
+     * @return 当前的分类快照
+     */
+    private Snapshot snapshot() {
+        Snapshot current = snapshot;
+        return current != null ? current : reload();
+    }
+
+    /**
+     * 分类未命中时重新加载字典
+     * 多个线程同时未命中时只有第一个线程重新加载，其余线程直接使用它加载的快照
+     *
+     * @param observed   未命中时读取的快照
+     * @param categoryId 未命中的分类ID
+     * @return 重新加载后的分类，仍不存在时返回null
+     */
+    private synchronized Category reloadOnMiss(Snapshot observed, Long categoryId) {
+        Snapshot current = snapshot == observed ? reload() : snapshot;
+
+        Category category = current.categories().get(categoryId);
+        if (category == null)
+            current.missing().add(categoryId);
+        return category;
+    }
+
+    /**
+     * 从数据库加载全部分类，构建新的快照并整体替换旧快照
+     * 加载在锁内串行执行，后开始的加载总是读到更新的数据并最后替换，旧的分类列表不会覆盖新的
+     *
+     * @return 新的分类快照
+     */
+    private synchronized Snapshot reload() {
+        Map<Long, Category> loaded = categoryService.list().stream()
+                .collect(Collectors.toUnmodifiableMap(Category::getId, Function.identity()));
+        Snapshot reloaded = new Snapshot(loaded, ConcurrentHashMap.newKeySet());
+        snapshot = reloaded;
+        return reloaded;
+    }
+
+    /**
+     * 分类快照
+     *
+     * @param categories 分类ID到分类的只读映射
+     * @param missing    在该快照中确认不存在的分类ID
+     */
+    private record Snapshot(Map<Long, Category> categories, Set<Long> missing) {
+    }
+}
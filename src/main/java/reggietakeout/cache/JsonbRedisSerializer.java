@@ -0,0 +1,84 @@
+package reggietakeout.cache;
+
+import com.alibaba.fastjson2.JSONB;
+import com.alibaba.fastjson2.JSONReader;
+import com.alibaba.fastjson2.JSONWriter;
+import com.alibaba.fastjson2.filter.Filter;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+public class JsonbRedisSerializer implements RedisSerializer<Object> {
+    // 反序列化时只允许还原本项目及常用JDK类型，防止任意类型的自动装配
+    private static final Filter AUTO_TYPE_FILTER = JSONReader.autoTypeFilter(
+            "reggietakeout.", "java.util.", "java.math.", "java.time.");
+
+    // 迁移期间用于读取旧的JDK序列化数据
+    private final JdkSerializationRedisSerializer jdkSerializer = new JdkSerializationRedisSerializer();
+
+    /**
+     * 将对象序列化为JSONB二进制格式
+     * <p>
+     * 写入类型名以便还原为原始的实体或DTO类型，字段按名称匹配，
+     * 实体类增删字段后旧数据仍可正常读取
+     *
+     * @param value 要序列化的对象
+     * @return 序列化后的字节数组，对象为null时返回空数组
+     */
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        if (value == null)
+            return new byte[0];
+
+        // 不可变集合统一转换为ArrayList，避免写入JDK内部集合类型名
+        if (value instanceof Collection<?> collection && !(value instanceof ArrayList<?>))
+            value = new ArrayList<>(collection);
+
+        try {
+            return JSONB.toBytes(value, JSONWriter.Feature.WriteClassName);
+        } catch (Exception e) {
+            throw new SerializationException("JSONB序列化失败：" + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 将字节数组反序列化为对象
+     * <p>
+     * 以JDK序列化魔数开头的数据是切换编码前写入的旧数据，交由JDK序列化器读取，
+     * 这些数据会在过期或被重新写入后自然迁移为JSONB格式
+     *
+     * @param bytes 字节数组
+     * @return 反序列化得到的对象，字节数组为空时返回null
+     */
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0)
+            return null;
+
+        // 兼容切换编码前写入的JDK序列化数据
+        if (isJdkSerialized(bytes))
+            return jdkSerializer.deserialize(bytes);
+
+        try {
+            return JSONB.parseObject(bytes, Object.class, AUTO_TYPE_FILTER);
+        } catch (Exception e) {
+            throw new SerializationException("JSONB反序列化失败：" + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 判断数据是否为JDK序列化格式
+     * JDK序列化流固定以 0xACED0005 开头
+     *
+     * @param bytes 字节数组
+     * @return 是JDK序列化格式时返回true
+     */
+    public static boolean isJdkSerialized(byte[] bytes) {
+        return bytes.length >= 4
+                && bytes[0] == (byte) 0xAC && bytes[1] == (byte) 0xED
+                && bytes[2] == 0x00 && bytes[3] == 0x05;
+    }
+}
@@ -0,0 +1,424 @@
+package reggietakeout.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+@Component
+@Slf4j
+public class MenuCache implements MessageListener {
+    // 缓存失效广播频道
+    public static final String EVICT_CHANNEL = "menu_cache_evict";
+    // 菜品列表缓存的命名空间
+    public static final String DISH_NAMESPACE = "dish";
+    // 套餐列表缓存的命名空间
+    public static final String SETMEAL_NAMESPACE = "setmeal";
+
+    // 在一次往返中读取命名空间代数及对应代数下的缓存值
+    private static final RedisScript<List> GET_SCRIPT = RedisScript.of("""
+            local generation = redis.call('GET', KEYS[1]) or '0'
+            return {generation, redis.call('GET', ARGV[1] .. generation .. ARGV[2]) or false}
+            """, List.class);
+    // 仅当租约仍由本节点持有时才释放
+    private static final RedisScript<Long> RELEASE_LEASE_SCRIPT = RedisScript.of("""
+            if redis.call('GET', KEYS[1]) == ARGV[1] then
+                return redis.call('DEL', KEYS[1])
+            end
+            return 0
+            """, Long.class);
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+    @Autowired
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    @Value("${reggie.cache.local.maximum-size:1000}")
+    private long localMaximumSize;
+    @Value("${reggie.cache.local.expire-seconds:60}")
+    private long localExpireSeconds;
+    @Value("${reggie.cache.redis.expire-minutes:15}")
+    private long redisExpireMinutes;
+    @Value("${reggie.cache.lease.enabled:false}")
+    private boolean leaseEnabled;
+    @Value("${reggie.cache.lease.timeout-millis:3000}")
+    private long leaseTimeoutMillis;
+    @Value("${reggie.cache.lease.poll-millis:50}")
+    private long leasePollMillis;
+
+    // 进程内一级缓存
+    private Cache<String, Object> localCache;
+
+    // 本节点正在进行的加载，同一个键同时只有一个线程访问数据库
+    private final ConcurrentHashMap<String, CompletableFuture<Object>> inflight = new ConcurrentHashMap<>();
+    // 本节点标识，用于识别租约持有者
+    private final String nodeId = UUID.randomUUID().toString();
+
+    // Redis二级缓存命中与未命中次数
+    private final LongAdder redisHits = new LongAdder();
+    private final LongAdder redisMisses = new LongAdder();
+
+    /**
+     * 构造菜品列表的缓存键
+     *
+     * @param categoryId 分类ID
+     * @param status     菜品状态
+     * @return 菜品列表的缓存键
+     */
+    public static String dishKey(Long categoryId, Integer status) {
+        return DISH_NAMESPACE + "_" + categoryId + "_" + status;
+    }
+
+    /**
+     * 构造套餐列表的缓存键
+     *
+     * @param categoryId 分类ID
+     * @param status     套餐状态
+     * @return 套餐列表的缓存键
+     */
+    public static String setmealKey(Long categoryId, Integer status) {
+        return SETMEAL_NAMESPACE + "_" + categoryId + "_" + status;
+    }
+
+    /**
+     * 初始化一级缓存，并订阅缓存失效广播
+     */
+    @PostConstruct
+    public void init() {
+        // 一级缓存按容量和写入时间双重限制，防止占用过多内存或长期持有旧数据
+        localCache = Caffeine.newBuilder()
+                .maximumSize(localMaximumSize)
+                .expireAfterWrite(localExpireSeconds, TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+
+        // 订阅缓存失效频道，其他节点修改数据时清除本节点的一级缓存
+        redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(EVICT_CHANNEL));
+    }
+
+    /**
+     * 依次从一级缓存、Redis二级缓存中获取数据，都未命中时调用加载器从数据库加载并回填两级缓存
+     * <p>
+     * 同一节点上对同一个键的并发未命中会被合并，只有一个线程执行加载，其余线程等待其结果，
+     * 避免缓存失效瞬间大量请求同时访问数据库
+     *
+     * @param key    缓存键，如 dish_{categoryId}_{status}
+     * @param loader 缓存未命中时的数据加载器
+     * @param <T>    缓存数据类型
+     * @return 缓存或加载得到的数据
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String key, Supplier<T> loader) {
+        // 先查询一级缓存，命中则无需访问Redis
+        Object value = localCache.getIfPresent(key);
+        if (value != null)
+            return (T) value;
+
+        // 已有线程在加载该键时，等待其加载结果
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        CompletableFuture<Object> loading = inflight.putIfAbsent(key, future);
+        if (loading != null)
+            return (T) await(loading);
+
+        // 当前线程负责加载，完成后唤醒所有等待的线程
+        try {
+            T loaded = load(key, loader);
+            future.complete(loaded);
+            return loaded;
+        } catch (Throwable e) {
+            // 任何异常或错误都要结束等待中的加载，否则等待的线程会一直阻塞
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inflight.remove(key, future);
+        }
+    }
+
+    /**
+     * 从Redis二级缓存加载数据，未命中时调用加载器从数据库加载并回填两级缓存
+     * <p>
+     * Redis中的实际键带有命名空间代数，如 dish_v3_{categoryId}_{status}，
+     * 代数与缓存值通过一个Lua脚本一次读取，一级缓存未命中时仍只需一次Redis往返
+     * 开启租约后，多个节点同时未命中时只有取得租约的节点访问数据库，其余节点等待其回填Redis
+     *
+     * @param key    缓存键
+     * @param loader 缓存未命中时的数据加载器
+     * @param <T>    缓存数据类型
+     * @return 缓存或加载得到的数据
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T load(String key, Supplier<T> loader) {
+        // 一次往返读取命名空间代数和该代数下的缓存值
+        RedisEntry entry = readRedis(key);
+        if (entry.value() != null) {
+            redisHits.increment();
+            localCache.put(key, entry.value());
+            return (T) entry.value();
+        }
+        redisMisses.increment();
+
+        String physicalKey = physicalKey(key, entry.generation());
+        String leaseKey = physicalKey + "_lease";
+
+        // 开启租约时尝试取得该键的加载租约
+        boolean holdsLease = false;
+        if (leaseEnabled) {
+            holdsLease = Boolean.TRUE.equals(stringRedisTemplate.opsForValue()
+                    .setIfAbsent(leaseKey, nodeId, leaseTimeoutMillis, TimeUnit.MILLISECONDS));
+
+            // 其他节点持有租约时，短暂等待其将数据写入Redis，超时仍未写入则由本节点自行加载
+            if (!holdsLease) {
+                Object value = awaitLeaseHolder(key);
+                if (value != null) {
+                    localCache.put(key, value);
+                    return (T) value;
+                }
+            }
+        }
+
+        try {
+            // 从数据库加载并写入当前代数下的缓存键
+            T loaded = loader.get();
+            redisTemplate.opsForValue().set(physicalKey, loaded, redisExpireMinutes, TimeUnit.MINUTES);
+            localCache.put(key, loaded);
+            return loaded;
+        } finally {
+            // 释放本节点持有的租约
+            if (holdsLease)
+                stringRedisTemplate.execute(RELEASE_LEASE_SCRIPT, List.of(leaseKey), nodeId);
+        }
+    }
+
+    /**
+     * 一次往返读取命名空间代数及该代数下的缓存值
+     *
+     * @param key 缓存键
+     * @return 命名空间代数及缓存值，缓存不存在时值为null
+     */
+    @SuppressWarnings("unchecked")
+    private RedisEntry readRedis(String key) {
+        String namespace = namespaceOf(key);
+        List<Object> result = (List<Object>) redisTemplate.execute(GET_SCRIPT, RedisSerializer.string(), (RedisSerializer) RedisSerializer.byteArray(),
+                List.of(generationKey(namespace)), namespace + "_v", key.substring(namespace.length()));
+
+        String generation = new String((byte[]) result.get(0), StandardCharsets.UTF_8);
+        Object value = result.get(1) == null ? null : redisTemplate.getValueSerializer().deserialize((byte[]) result.get(1));
+        return new RedisEntry(generation, value);
+    }
+
+    /**
+     * 在租约有效期内轮询Redis，等待持有租约的节点回填缓存
+     *
+     * @param key 缓存键
+     * @return 其他节点回填的缓存值，超时仍未回填时返回null
+     */
+    private Object awaitLeaseHolder(String key) {
+        long deadline = System.currentTimeMillis() + leaseTimeoutMillis;
+        while (System.currentTimeMillis() < deadline) {
+            try {
+                Thread.sleep(leasePollMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+
+            Object value = readRedis(key).value();
+            if (value != null)
+                return value;
+        }
+        return null;
+    }
+
+    /**
+     * 等待其他线程的加载结果，加载失败时将原始异常抛给当前调用方
+     *
+     * @param loading 正在进行的加载
+     * @return 加载得到的数据
+     */
+    private static Object await(CompletableFuture<Object> loading) {
+        try {
+            return loading.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause)
+                throw cause;
+            if (e.getCause() instanceof Error error)
+                throw error;
+            throw e;
+        }
+    }
+
+    /**
+     * 删除指定的缓存键，并广播通知所有节点清除一级缓存
+     *
+     * @param keys 要删除的缓存键，如 dish_{categoryId}_{status}
+     */
+    public void evict(String... keys) {
+        // 按命名空间当前代数换算出Redis中的实际键后删除
+        Map<String, String> generations = new HashMap<>();
+        List<String> physicalKeys = Arrays.stream(keys)
+                .map(key -> physicalKey(key, generations.computeIfAbsent(namespaceOf(key), this::currentGeneration)))
+                .toList();
+        redisTemplate.delete(physicalKeys);
+
+        invalidateLocal(keys);
+        publish(keys);
+    }
+
+    /**
+     * 使整个命名空间下的缓存失效
+     * <p>
+     * 只需对命名空间代数执行一次原子INCR，之后所有读写都落在新代数的键上，
+     * 旧代数的键不再被访问，随各自的过期时间自然淘汰，无需使用KEYS扫描整个键空间
+     *
+     * @param namespace 缓存命名空间，如 dish、setmeal
+     */
+    public void evictNamespace(String namespace) {
+        stringRedisTemplate.opsForValue().increment(generationKey(namespace));
+
+        String pattern = namespace + "_*";
+        invalidateLocal(pattern);
+        publish(pattern);
+    }
+
+    /**
+     * 接收其他节点广播的缓存失效消息，清除本节点对应的一级缓存
+     *
+     * @param message 消息内容，多个缓存键以逗号分隔，以*结尾的表示前缀
+     * @param pattern 订阅模式，此处未使用
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        log.debug("收到缓存失效广播：{}", body);
+
+        invalidateLocal(body.split(","));
+    }
+
+    /**
+     * 获取各级缓存的命中统计
+     *
+     * @return 一级缓存和Redis二级缓存的命中、未命中次数等统计信息
+     */
+    public Map<String, Object> stats() {
+        CacheStats localStats = localCache.stats();
+
+        Map<String, Object> local = new LinkedHashMap<>();
+        local.put("hits", localStats.hitCount());
+        local.put("misses", localStats.missCount());
+        local.put("hitRate", localStats.hitRate());
+        local.put("evictions", localStats.evictionCount());
+        local.put("size", localCache.estimatedSize());
+
+        long hits = redisHits.sum();
+        long misses = redisMisses.sum();
+        Map<String, Object> redis = new LinkedHashMap<>();
+        redis.put("hits", hits);
+        redis.put("misses", misses);
+        redis.put("hitRate", hits + misses == 0 ? 1.0 : (double) hits / (hits + misses));
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("local", local);
+        stats.put("redis", redis);
+        return stats;
+    }
+
+    /**
+     * 获取命名空间的当前代数
+     *
+     * @param namespace 缓存命名空间
+     * @return 当前代数，从未失效过时为0
+     */
+    private String currentGeneration(String namespace) {
+        String generation = stringRedisTemplate.opsForValue().get(generationKey(namespace));
+        return generation == null ? "0" : generation;
+    }
+
+    /**
+     * 获取缓存键所属的命名空间
+     *
+     * @param key 缓存键，如 dish_{categoryId}_{status}
+     * @return 命名空间，如 dish
+     */
+    private static String namespaceOf(String key) {
+        return key.substring(0, key.indexOf('_'));
+    }
+
+    /**
+     * 构造保存命名空间代数的键
+     *
+     * @param namespace 缓存命名空间
+     * @return 命名空间代数的键，如 dish_generation
+     */
+    private static String generationKey(String namespace) {
+        return namespace + "_generation";
+    }
+
+    /**
+     * 将缓存键换算为Redis中带代数的实际键
+     *
+     * @param key        缓存键，如 dish_{categoryId}_{status}
+     * @param generation 命名空间代数
+     * @return Redis中的实际键，如 dish_v3_{categoryId}_{status}
+     */
+    private static String physicalKey(String key, String generation) {
+        String namespace = namespaceOf(key);
+        return namespace + "_v" + generation + key.substring(namespace.length());
+    }
+
+    /**
+     * 清除本节点的一级缓存
+     *
+     * @param keys 缓存键，以*结尾的表示清除该前缀下的所有键
+     */
+    private void invalidateLocal(String... keys) {
+        for (String key : keys) {
+            if (key.endsWith("*")) {
+                String prefix = key.substring(0, key.length() - 1);
+                localCache.asMap().keySet().removeIf(k -> k.startsWith(prefix));
+            } else {
+                localCache.invalidate(key);
+            }
+        }
+    }
+
+    /**
+     * 广播缓存失效消息
+     *
+     * @param keys 失效的缓存键或前缀
+     */
+    private void publish(String... keys) {
+        stringRedisTemplate.convertAndSend(EVICT_CHANNEL, String.join(",", keys));
+    }
+
+    /**
+     * Redis中读取到的命名空间代数及缓存值
+     *
+     * @param generation 命名空间代数
+     * @param value      缓存值，不存在时为null
+     */
+    private record RedisEntry(String generation, Object value) {
+    }
+}
@@ -0,0 +1,572 @@
+package reggietakeout.cache;
+
+import com.alibaba.fastjson2.JSON;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.toolkit.IdWorker;
+import com.baomidou.mybatisplus.extension.toolkit.Db;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import reggietakeout.dto.CartOperationDto;
+import reggietakeout.entity.ShoppingCart;
+import reggietakeout.mapper.ShoppingCartMapper;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 基于Redis哈希的购物车存储
+ * <p>
+ * 每个用户的购物车保存在一个哈希 cart_{userId} 中：字段 n:{商品键} 保存数量，m:{商品键} 保存商品信息JSON，
+ * _v 为购物车版本号，每次修改递增，同时作为购物车已从数据库加载的标记
+ * 加购、减购、清空都通过Lua脚本在一次Redis往返中原子完成，修改后将用户记入待回写集合，
+ * 由后台线程定时批量回写到shopping_cart表，保证重启后的持久性和报表查询
+ */
+@Component
+@Slf4j
+public class RedisCartStore {
+    // 待回写到数据库的用户ID集合
+    public static final String DIRTY_KEY = "cart_dirty";
+
+    // 修改购物车中一个商品的数量，数量不大于0时删除该商品；购物车尚未加载时返回nil
+    private static final RedisScript<Long> MUTATE_SCRIPT = RedisScript.of("""
+            if redis.call('EXISTS', KEYS[1]) == 0 then
+                return false
+            end
+            local item = ARGV[1]
+            if ARGV[2] == '1' then
+                item = nil
+                for _, field in ipairs(redis.call('HKEYS', KEYS[1])) do
+                    if string.find(field, 'n:' .. ARGV[1], 1, true) == 1 then
+                        item = string.sub(field, 3)
+                        break
+                    end
+                end
+                if not item then
+                    return 0
+                end
+            end
+            local number = redis.call('HINCRBY', KEYS[1], 'n:' .. item, ARGV[3])
+            if number <= 0 then
+                redis.call('HDEL', KEYS[1], 'n:' .. item, 'm:' .. item)
+                number = 0
+            elseif ARGV[4] ~= '' then
+                redis.call('HSETNX', KEYS[1], 'm:' .. item, ARGV[4])
+            end
+            redis.call('HINCRBY', KEYS[1], '_v', 1)
+            redis.call('EXPIRE', KEYS[1], ARGV[6])
+            redis.call('SADD', KEYS[2], ARGV[5])
+            return number
+            """, Long.class);
+    // 清空购物车，保留递增后的版本号作为已加载标记
+    private static final RedisScript<Long> CLEAR_SCRIPT = RedisScript.of("""
+            local version = redis.call('HINCRBY', KEYS[1], '_v', 1)
+            redis.call('DEL', KEYS[1])
+            redis.call('HSET', KEYS[1], '_v', version)
+            redis.call('EXPIRE', KEYS[1], ARGV[2])
+            redis.call('SADD', KEYS[2], ARGV[1])
+            return version
+            """, Long.class);
+    // 用给定的商品替换整个购物车，保留递增后的版本号
+    private static final RedisScript<Long> REPLACE_SCRIPT = RedisScript.of("""
+            local version = redis.call('HINCRBY', KEYS[1], '_v', 1)
+            redis.call('DEL', KEYS[1])
+            redis.call('HSET', KEYS[1], '_v', version)
+            for i = 3, #ARGV, 3 do
+                redis.call('HSET', KEYS[1], 'n:' .. ARGV[i], ARGV[i + 1], 'm:' .. ARGV[i], ARGV[i + 2])
+            end
+            redis.call('EXPIRE', KEYS[1], ARGV[2])
+            redis.call('SADD', KEYS[2], ARGV[1])
+            return version
+            """, Long.class);
+    // 从购物车中扣除下单时的商品数量，下单期间新加购的商品不受影响
+    private static final RedisScript<Long> REMOVE_ORDERED_SCRIPT = RedisScript.of("""
+            if redis.call('EXISTS', KEYS[1]) == 0 then
+                return 0
+            end
+            for i = 3, #ARGV, 2 do
+                local number = redis.call('HINCRBY', KEYS[1], 'n:' .. ARGV[i], -tonumber(ARGV[i + 1]))
+                if number <= 0 then
+                    redis.call('HDEL', KEYS[1], 'n:' .. ARGV[i], 'm:' .. ARGV[i])
+                end
+            end
+            redis.call('HINCRBY', KEYS[1], '_v', 1)
+            redis.call('EXPIRE', KEYS[1], ARGV[2])
+            redis.call('SADD', KEYS[2], ARGV[1])
+            return 1
+            """, Long.class);
+    // 按顺序执行一组加购、减购、设置数量操作并返回修改后的整个购物车；购物车尚未加载时返回nil
+    private static final RedisScript<List> BATCH_SCRIPT = RedisScript.of("""
+            if redis.call('EXISTS', KEYS[1]) == 0 then
+                return false
+            end
+            for i = 3, #ARGV, 5 do
+                local item = ARGV[i + 1]
+                if ARGV[i + 2] == '1' then
+                    for _, field in ipairs(redis.call('HKEYS', KEYS[1])) do
+                        if string.find(field, 'n:' .. ARGV[i + 1], 1, true) == 1 then
+                            item = string.sub(field, 3)
+                            break
+                        end
+                    end
+                end
+                local number = tonumber(ARGV[i + 3])
+                if ARGV[i] == 'set' then
+                    redis.call('HSET', KEYS[1], 'n:' .. item, number)
+                elseif ARGV[i] == 'sub' then
+                    number = redis.call('HINCRBY', KEYS[1], 'n:' .. item, -number)
+                else
+                    number = redis.call('HINCRBY', KEYS[1], 'n:' .. item, number)
+                end
+                if number <= 0 then
+                    redis.call('HDEL', KEYS[1], 'n:' .. item, 'm:' .. item)
+                elseif ARGV[i + 4] ~= '' then
+                    redis.call('HSETNX', KEYS[1], 'm:' .. item, ARGV[i + 4])
+                end
+            end
+            redis.call('HINCRBY', KEYS[1], '_v', 1)
+            redis.call('EXPIRE', KEYS[1], ARGV[2])
+            redis.call('SADD', KEYS[2], ARGV[1])
+            return redis.call('HGETALL', KEYS[1])
+            """, List.class);
+    // 回写提交后确认：购物车版本仍是回写时读取的版本时才移出待回写集合，最后释放本节点持有的回写锁
+    private static final RedisScript<Long> ACK_SCRIPT = RedisScript.of("""
+            local acked = 0
+            if ARGV[4] == '1' and (redis.call('HGET', KEYS[1], '_v') or '') == ARGV[2] then
+                acked = redis.call('SREM', KEYS[2], ARGV[1])
+            end
+            if redis.call('GET', KEYS[3]) == ARGV[3] then
+                redis.call('DEL', KEYS[3])
+            end
+            return acked
+            """, Long.class);
+    // 将数据库中的购物车加载到Redis，已被其他请求加载时不覆盖
+    private static final RedisScript<Long> LOAD_SCRIPT = RedisScript.of("""
+            if redis.call('EXISTS', KEYS[1]) == 1 then
+                return 0
+            end
+            redis.call('HSET', KEYS[1], '_v', 0)
+            for i = 2, #ARGV, 2 do
+                redis.call('HSET', KEYS[1], ARGV[i], ARGV[i + 1])
+            end
+            redis.call('EXPIRE', KEYS[1], ARGV[1])
+            return 1
+            """, Long.class);
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+    @Autowired
+    private ShoppingCartMapper shoppingCartMapper;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    // 购物车存储方式，redis时启用本存储
+    @Value("${reggie.cart.store:db}")
+    private String store;
+    // 购物车哈希的过期时间，每次修改后顺延
+    @Value("${reggie.cart.expire-days:7}")
+    private long expireDays;
+    // 回写数据库的间隔
+    @Value("${reggie.cart.flush-millis:1000}")
+    private long flushMillis;
+    // 每次回写的最大用户数
+    @Value("${reggie.cart.flush-batch-size:200}")
+    private int flushBatchSize;
+    // 回写锁的租期，超过租期仍未提交的回写整体回滚，交由下一轮重试
+    @Value("${reggie.cart.flush-lease-millis:30000}")
+    private long flushLeaseMillis;
+
+    // 本节点持有回写锁时写入的标识，释放时只删除自己持有的锁
+    private final String lockToken = UUID.randomUUID().toString();
+
+    // 执行定时回写的调度线程
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "cart-write-behind");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * 启用Redis购物车时开始定时回写
+     */
+    @PostConstruct
+    public void init() {
+        if (isEnabled())
+            scheduler.scheduleWithFixedDelay(this::flushSafely, flushMillis, flushMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 是否使用Redis保存购物车
+     *
+     * @return 配置为redis时返回true
+     */
+    public boolean isEnabled() {
+        return "redis".equals(store);
+    }
+
+    /**
+     * 构造购物车哈希的键
+     *
+     * @param userId 用户ID
+     * @return 购物车哈希的键
+     */
+    public static String cartKey(Long userId) {
+        return "cart_" + userId;
+    }
+
+    /**
+     * 构造商品在购物车哈希中的键，菜品按菜品ID和口味区分，套餐按套餐ID区分
+     *
+     * @param shoppingCart 购物车商品
+     * @return 商品键
+     */
+    public static String itemKey(ShoppingCart shoppingCart) {
+        if (shoppingCart.getDishId() != null)
+            return "d" + shoppingCart.getDishId() + ":" + Objects.toString(shoppingCart.getDishFlavor(), "");
+        return "s" + shoppingCart.getSetmealId();
+    }
+
+    /**
+     * 将商品加入购物车，已存在时数量加1
+     *
+     * @param shoppingCart 购物车商品，包含用户ID、菜品或套餐ID、口味、名称、金额等信息
+     * @return 返回加购后的数量
+     */
+    public long add(ShoppingCart shoppingCart) {
+        return mutate(shoppingCart.getUserId(), itemKey(shoppingCart), false, 1, meta(shoppingCart.getUserId(), shoppingCart));
+    }
+
+    /**
+     * 将购物车中的商品数量减1，减到0时删除该商品
+     * 未指定口味的菜品按菜品ID匹配购物车中的任一口味
+     *
+     * @param userId     用户ID
+     * @param dishId     菜品ID
+     * @param setmealId  套餐ID
+     * @param dishFlavor 菜品口味，可以为null
+     * @return 返回减购后的数量，商品不存在时返回0
+     */
+    public long sub(Long userId, Long dishId, Long setmealId, String dishFlavor) {
+        if (dishId != null && dishFlavor == null)
+            return mutate(userId, "d" + dishId + ":", true, -1, "");
+
+        ShoppingCart item = new ShoppingCart();
+        item.setDishId(dishId);
+        item.setSetmealId(setmealId);
+        item.setDishFlavor(dishFlavor);
+        return mutate(userId, itemKey(item), false, -1, "");
+    }
+
+    /**
+     * 在一次Redis往返中按顺序原子执行一组购物车操作，并返回修改后的购物车
+     * 未指定口味的菜品减购时按菜品ID匹配购物车中的任一口味，加购和设置数量时按无口味的商品处理
+     *
+     * @param userId     用户ID
+     * @param operations 购物车操作，数量已补全
+     * @return 返回修改后的购物车商品列表，按加购时间排序
+     */
+    public List<ShoppingCart> apply(Long userId, List<CartOperationDto> operations) {
+        List<String> keys = List.of(cartKey(userId), DIRTY_KEY);
+        List<String> args = new ArrayList<>();
+        args.add(userId.toString());
+        args.add(String.valueOf(expireSeconds()));
+        for (CartOperationDto operation : operations) {
+            boolean sub = CartOperationDto.SUB.equals(operation.getOp());
+            boolean prefix = sub && operation.getDishId() != null && operation.getDishFlavor() == null;
+            args.add(operation.getOp());
+            args.add(itemKey(operation));
+            args.add(prefix ? "1" : "0");
+            args.add(operation.getNumber().toString());
+            args.add(sub ? "" : meta(userId, operation));
+        }
+
+        List<?> fields = stringRedisTemplate.execute(BATCH_SCRIPT, keys, args.toArray());
+        if (fields == null) {
+            load(userId);
+            fields = stringRedisTemplate.execute(BATCH_SCRIPT, keys, args.toArray());
+        }
+
+        // HGETALL返回字段和值交替排列的列表
+        Map<Object, Object> entries = new HashMap<>();
+        for (int i = 0; fields != null && i + 1 < fields.size(); i += 2)
+            entries.put(fields.get(i), fields.get(i + 1));
+        return toItems(entries);
+    }
+
+    /**
+     * 读取用户购物车的一致性快照
+     * HGETALL在Redis中原子执行，读到的数量和商品信息属于同一个版本
+     *
+     * @param userId 用户ID
+     * @return 返回购物车商品列表，按加购时间排序
+     */
+    public List<ShoppingCart> list(Long userId) {
+        Map<Object, Object> entries = stringRedisTemplate.opsForHash().entries(cartKey(userId));
+        if (entries.isEmpty()) {
+            load(userId);
+            entries = stringRedisTemplate.opsForHash().entries(cartKey(userId));
+        }
+        return toItems(entries);
+    }
+
+    /**
+     * 清空用户的购物车
+     *
+     * @param userId 用户ID
+     */
+    public void clear(Long userId) {
+        stringRedisTemplate.execute(CLEAR_SCRIPT, List.of(cartKey(userId), DIRTY_KEY),
+                userId.toString(), String.valueOf(expireSeconds()));
+    }
+
+    /**
+     * 在一次Redis往返中用给定的商品原子替换用户的整个购物车
+     *
+     * @param userId 用户ID
+     * @param items  新的购物车商品，同一商品只能出现一次
+     * @return 返回替换后的购物车商品列表
+     */
+    public List<ShoppingCart> replace(Long userId, List<ShoppingCart> items) {
+        List<String> args = new ArrayList<>();
+        args.add(userId.toString());
+        args.add(String.valueOf(expireSeconds()));
+        items.forEach(item -> {
+            args.add(itemKey(item));
+            args.add(item.getNumber().toString());
+            args.add(meta(userId, item));
+        });
+
+        stringRedisTemplate.execute(REPLACE_SCRIPT, List.of(cartKey(userId), DIRTY_KEY), args.toArray());
+        return list(userId);
+    }
+
+    /**
+     * 下单成功后从购物车中扣除已下单的商品数量
+     * 只扣除下单快照中的数量，用户在下单期间新加购的商品仍保留在购物车中
+     *
+     * @param userId  用户ID
+     * @param ordered 下单时读取的购物车快照
+     */
+    public void removeOrdered(Long userId, List<ShoppingCart> ordered) {
+        List<String> args = new ArrayList<>();
+        args.add(userId.toString());
+        args.add(String.valueOf(expireSeconds()));
+        ordered.forEach(item -> {
+            args.add(itemKey(item));
+            args.add(item.getNumber().toString());
+        });
+
+        stringRedisTemplate.execute(REMOVE_ORDERED_SCRIPT, List.of(cartKey(userId), DIRTY_KEY), args.toArray());
+    }
+
+    /**
+     * 构造用户购物车回写锁的键
+     *
+     * @param userId 用户ID
+     * @return 回写锁的键
+     */
+    public static String flushLockKey(Long userId) {
+        return "cart_flush_" + userId;
+    }
+
+    /**
+     * 将待回写集合中的用户购物车批量回写到数据库
+     * <p>
+     * 先随机读取一批待回写的用户，但不从集合中移除；对每个用户获取带租期的回写锁，同一用户同一时刻只有一个节点回写，
+     * 获取锁失败的用户留给持有锁的节点。读取购物车快照及其版本号后，在一个事务中删除这些用户的旧记录并批量插入快照，
+     * 事务提交后只有版本号仍与快照一致的用户才移出集合，回写期间发生修改或进程在提交前退出时，用户仍留在集合中等待下一轮
+     *
+     * @return 返回本轮回写的用户数
+     */
+    public int flush() {
+        Set<String> userIds = stringRedisTemplate.opsForSet().distinctRandomMembers(DIRTY_KEY, flushBatchSize);
+        if (userIds == null || userIds.isEmpty())
+            return 0;
+
+        long deadline = System.currentTimeMillis() + flushLeaseMillis;
+        // 成功获取回写锁的用户及其快照版本号，购物车已过期时版本号为空字符串
+        Map<Long, String> versions = new LinkedHashMap<>();
+        List<Long> flushed = new ArrayList<>();
+        List<ShoppingCart> rows = new ArrayList<>();
+        for (String userId : userIds) {
+            Long id = Long.valueOf(userId);
+            Boolean locked = stringRedisTemplate.opsForValue()
+                    .setIfAbsent(flushLockKey(id), lockToken, flushLeaseMillis, TimeUnit.MILLISECONDS);
+            if (!Boolean.TRUE.equals(locked))
+                continue;
+
+            Map<Object, Object> entries = stringRedisTemplate.opsForHash().entries(cartKey(id));
+            versions.put(id, Objects.toString(entries.get("_v"), ""));
+            // 购物车已过期时不回写，避免误删数据库中的记录
+            if (entries.isEmpty())
+                continue;
+            flushed.add(id);
+            rows.addAll(toItems(entries));
+        }
+
+        boolean committed = false;
+        try {
+            if (!flushed.isEmpty()) {
+                committed = Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+                    shoppingCartMapper.delete(new LambdaQueryWrapper<ShoppingCart>().in(ShoppingCart::getUserId, flushed));
+                    if (!rows.isEmpty())
+                        Db.saveBatch(rows);
+
+                    // 租期已过时其他节点可能已经开始回写同一用户，放弃本轮写入，避免旧快照覆盖新快照
+                    if (System.currentTimeMillis() > deadline) {
+                        status.setRollbackOnly();
+                        return false;
+                    }
+                    return true;
+                }));
+                if (!committed)
+                    log.warn("购物车回写超过租期{}ms，本轮已回滚", flushLeaseMillis);
+            } else {
+                committed = true;
+            }
+        } finally {
+            // 提交成功时确认版本号未变化的用户，失败时只释放回写锁，用户仍留在待回写集合中
+            String ack = committed ? "1" : "0";
+            versions.forEach((userId, version) -> stringRedisTemplate.execute(ACK_SCRIPT,
+                    List.of(cartKey(userId), DIRTY_KEY, flushLockKey(userId)),
+                    userId.toString(), version, lockToken, ack));
+        }
+        return committed ? flushed.size() : 0;
+    }
+
+    /**
+     * 执行一轮回写，异常只记录日志，不中断定时任务
+     */
+    private void flushSafely() {
+        try {
+            // 待回写的用户较多时连续回写，直到积压清空
+            int flushed;
+            do {
+                flushed = flush();
+            } while (flushed >= flushBatchSize);
+        } catch (Exception e) {
+            log.warn("购物车回写数据库失败：{}", e.getMessage());
+        }
+    }
+
+    /**
+     * 停止定时回写，并将剩余的修改回写到数据库
+     */
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdown();
+        if (isEnabled())
+            flushSafely();
+    }
+
+    /**
+     * 修改购物车中一个商品的数量，购物车尚未加载时先从数据库加载再重试
+     *
+     * @param userId 用户ID
+     * @param item   商品键，按前缀匹配时为商品键前缀
+     * @param prefix 是否按前缀匹配商品
+     * @param delta  数量增量
+     * @param meta   商品信息JSON，减购时为空字符串
+     * @return 返回修改后的数量
+     */
+    private long mutate(Long userId, String item, boolean prefix, long delta, String meta) {
+        List<String> keys = List.of(cartKey(userId), DIRTY_KEY);
+        Object[] args = {item, prefix ? "1" : "0", String.valueOf(delta), meta, userId.toString(), String.valueOf(expireSeconds())};
+
+        Long number = stringRedisTemplate.execute(MUTATE_SCRIPT, keys, args);
+        if (number == null) {
+            load(userId);
+            number = stringRedisTemplate.execute(MUTATE_SCRIPT, keys, args);
+        }
+        return number == null ? 0 : number;
+    }
+
+    /**
+     * 从数据库加载用户的购物车到Redis，同一商品的多条记录合并数量
+     *
+     * @param userId 用户ID
+     */
+    private void load(Long userId) {
+        List<ShoppingCart> rows = shoppingCartMapper.selectList(
+                new LambdaQueryWrapper<ShoppingCart>().eq(ShoppingCart::getUserId, userId).gt(ShoppingCart::getNumber, 0));
+
+        Map<String, ShoppingCart> items = new LinkedHashMap<>();
+        rows.forEach(row -> items.merge(itemKey(row), row, (existing, duplicate) -> {
+            existing.setNumber(existing.getNumber() + duplicate.getNumber());
+            return existing;
+        }));
+
+        List<String> args = new ArrayList<>();
+        args.add(String.valueOf(expireSeconds()));
+        items.forEach((item, row) -> {
+            Integer number = row.getNumber();
+            row.setNumber(null);
+            args.add("n:" + item);
+            args.add(number.toString());
+            args.add("m:" + item);
+            args.add(JSON.toJSONString(row));
+        });
+
+        stringRedisTemplate.execute(LOAD_SCRIPT, List.of(cartKey(userId)), args.toArray());
+    }
+
+    /**
+     * 构造商品信息JSON，只在首次加购时写入，ID在此时生成，回写数据库时沿用
+     *
+     * @param userId       用户ID
+     * @param shoppingCart 购物车商品
+     * @return 商品信息JSON
+     */
+    private String meta(Long userId, ShoppingCart shoppingCart) {
+        ShoppingCart meta = new ShoppingCart();
+        meta.setId(IdWorker.getId());
+        meta.setUserId(userId);
+        meta.setDishId(shoppingCart.getDishId());
+        meta.setSetmealId(shoppingCart.getSetmealId());
+        meta.setDishFlavor(shoppingCart.getDishFlavor());
+        meta.setName(shoppingCart.getName());
+        meta.setImage(shoppingCart.getImage());
+        meta.setAmount(shoppingCart.getAmount());
+        meta.setCreateTime(LocalDateTime.now());
+        return JSON.toJSONString(meta);
+    }
+
+    /**
+     * 将购物车哈希转换为购物车商品列表
+     *
+     * @param entries 购物车哈希的全部字段
+     * @return 返回购物车商品列表，按加购时间排序
+     */
+    private List<ShoppingCart> toItems(Map<Object, Object> entries) {
+        List<ShoppingCart> items = new ArrayList<>();
+        entries.forEach((field, value) -> {
+            String name = field.toString();
+            if (!name.startsWith("m:"))
+                return;
+
+            Object number = entries.get("n:" + name.substring(2));
+            if (number == null)
+                return;
+
+            ShoppingCart item = JSON.parseObject(value.toString(), ShoppingCart.class);
+            item.setNumber(Integer.valueOf(number.toString()));
+            items.add(item);
+        });
+
+        items.sort(Comparator.comparing(ShoppingCart::getCreateTime, Comparator.nullsLast(Comparator.naturalOrder())));
+        return items;
+    }
+
+    private long expireSeconds() {
+        return TimeUnit.DAYS.toSeconds(expireDays);
+    }
+}
@@ -0,0 +1,122 @@
+package reggietakeout.common;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.toolkit.support.SFunction;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import reggietakeout.exception.CustomException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 基于游标的分页对象，按（排序字段，主键）降序定位下一页的起点
+ * <p>
+ * 与OFFSET/LIMIT分页不同，游标分页直接从上一页最后一条记录之后开始读取，不统计总数，
+ * 无论翻到第几页，查询耗时都保持不变
+ * 游标对客户端不透明，第一页传入空字符串，后续请求传入上一页返回的nextCursor，nextCursor为null时表示没有更多数据
+ *
+ * @param <T> 记录类型
+ */
+public class CursorPage<T> extends Page<T> {
+    // 分隔排序字段值与主键的字符
+    private static final char SEPARATOR = '_';
+
+    // 当前页起点对应的排序字段值和主键，第一页时均为null
+    private final LocalDateTime afterSortValue;
+    private final Long afterId;
+
+    // 下一页的游标，没有更多数据时为null
+    private String nextCursor;
+
+    /**
+     * 根据客户端传入的游标和每页记录数创建游标分页对象
+     *
+     * @param cursor   上一页返回的游标，第一页传入空字符串
+     * @param pageSize 每页记录数
+     */
+    public CursorPage(String cursor, long pageSize) {
+        super(1, pageSize, false);
+
+        if (cursor == null || cursor.isEmpty()) {
+            this.afterSortValue = null;
+            this.afterId = null;
+            return;
+        }
+
+        // 解码游标，格式为"排序字段值_主键"
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int index = decoded.lastIndexOf(SEPARATOR);
+            this.afterSortValue = LocalDateTime.parse(decoded.substring(0, index));
+            this.afterId = Long.valueOf(decoded.substring(index + 1));
+        } catch (RuntimeException e) {
+            throw new CustomException("分页游标无效");
+        }
+    }
+
+    /**
+     * 为查询添加按（排序字段，主键）降序的排序、从游标位置开始的定位条件，以及多取一条记录的LIMIT
+     * 多取的一条记录仅用于判断是否还有下一页
+     *
+     * @param queryWrapper 已设置好过滤条件的查询包装器
+     * @param sortColumn   排序字段
+     * @param idColumn     主键字段
+     * @return 返回添加了定位条件的查询包装器
+     */
+    public LambdaQueryWrapper<T> seek(LambdaQueryWrapper<T> queryWrapper,
+                                      SFunction<T, LocalDateTime> sortColumn,
+                                      SFunction<T, Long> idColumn) {
+        // 从上一页最后一条记录之后开始读取：sort < v OR (sort = v AND id < lastId)
+        if (afterSortValue != null)
+            queryWrapper.and(wrapper -> wrapper.lt(sortColumn, afterSortValue)
+                    .or(inner -> inner.eq(sortColumn, afterSortValue).lt(idColumn, afterId)));
+
+        return queryWrapper.orderByDesc(sortColumn)
+                .orderByDesc(idColumn)
+                .last("LIMIT " + (getSize() + 1));
+    }
+
+    /**
+     * 使用查询结果填充当前页，并根据本页最后一条记录生成下一页的游标
+     *
+     * @param rows      按seek条件查询到的记录，最多比每页记录数多一条
+     * @param sortValue 获取记录排序字段值的函数
+     * @param idValue   获取记录主键的函数
+     * @return 返回填充后的分页对象
+     */
+    public CursorPage<T> fill(List<T> rows, Function<T, LocalDateTime> sortValue, Function<T, Long> idValue) {
+        // 多取的一条记录存在时说明还有下一页
+        boolean hasNext = rows.size() > getSize();
+        List<T> records = hasNext ? rows.subList(0, (int) getSize()) : rows;
+        setRecords(records);
+
+        if (hasNext) {
+            T last = records.get(records.size() - 1);
+            String raw = sortValue.apply(last).toString() + SEPARATOR + idValue.apply(last);
+            nextCursor = Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        return this;
+    }
+
+    /**
+     * 保留分页信息和下一页游标，将记录替换为转换后的记录
+     *
+     * @param records 转换后的记录
+     * @param <R>     转换后的记录类型
+     * @return 返回新的游标分页对象
+     */
+    public <R> CursorPage<R> withRecords(List<R> records) {
+        CursorPage<R> page = new CursorPage<>(null, getSize());
+        page.setRecords(records);
+        page.nextCursor = nextCursor;
+        return page;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
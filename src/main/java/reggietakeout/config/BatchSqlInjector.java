@@ -0,0 +1,28 @@
+package reggietakeout.config;
+
+import com.baomidou.mybatisplus.annotation.FieldFill;
+import com.baomidou.mybatisplus.core.injector.AbstractMethod;
+import com.baomidou.mybatisplus.core.injector.DefaultSqlInjector;
+import com.baomidou.mybatisplus.core.metadata.TableInfo;
+import com.baomidou.mybatisplus.extension.injector.methods.InsertBatchSomeColumn;
+import org.apache.ibatis.session.Configuration;
+import reggietakeout.mapper.BatchMapper;
+
+import java.util.List;
+
+/**
+ * 为继承BatchMapper的Mapper注入多行插入方法
+ * 插入的字段不包括只在更新时填充的字段和逻辑删除字段，逻辑删除字段使用数据库默认值
+ * <p>
+ * 与单行插入不同，多行INSERT中值为null的字段同样会显式写入null，不会使用数据库默认值，
+ * 对于不允许为null且依赖默认值的列，调用方需要在插入前自行设置默认值
+ */
+public class BatchSqlInjector extends DefaultSqlInjector {
+    @Override
+    public List<AbstractMethod> getMethodList(Configuration configuration, Class<?> mapperClass, TableInfo tableInfo) {
+        List<AbstractMethod> methodList = super.getMethodList(configuration, mapperClass, tableInfo);
+        if (BatchMapper.class.isAssignableFrom(mapperClass))
+            methodList.add(new InsertBatchSomeColumn(field -> field.getFieldFill() != FieldFill.UPDATE && !field.isLogicDelete()));
+        return methodList;
+    }
+}
@@ -24,4 +24,14 @@ public class MyBatisPlusConfig {
         // 返回配置好的拦截器实例
         return mybatisPlusInterceptor;
     }
+
+    /**
+     * 配置SQL注入器，为继承BatchMapper的Mapper注入多行插入方法
+     *
+     * @return BatchSqlInjector 返回SQL注入器实例
+     */
+    @Bean
+    public BatchSqlInjector batchSqlInjector() {
+        return new BatchSqlInjector();
+    }
 }
@@ -1,11 +1,13 @@
 package reggietakeout.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.RedisSerializer;
+import reggietakeout.cache.JsonbRedisSerializer;
 
 @Configuration
 public class RedisConfig {
@@ -14,10 +16,12 @@ public class RedisConfig {
      * 此方法主要负责初始化RedisTemplate，并设置其连接工厂和序列化方式
      *
      * @param redisCommandFactory Redis连接工厂，用于创建与Redis服务器的连接
+     * @param valueCodec          值的编码方式，jsonb 或 jdk
      * @return 配置完成的RedisTemplate实例，可用于执行Redis操作
      */
     @Bean
-    public RedisTemplate<String, Object> redisTemplate(RedisConnectionFactory redisCommandFactory) {
+    public RedisTemplate<String, Object> redisTemplate(RedisConnectionFactory redisCommandFactory,
+                                                       @Value("${reggie.cache.redis.value-codec:jsonb}") String valueCodec) {
         // 创建RedisTemplate实例
         RedisTemplate<String, Object> redisTemplate = new RedisTemplate<>();
 
@@ -29,7 +33,29 @@ public class RedisConfig {
         // 设置哈希键的序列化方式为字符串序列化
         redisTemplate.setHashKeySerializer(RedisSerializer.string());
 
+        // 设置值的序列化方式，默认使用紧凑的JSONB编码，可通过配置切换回JDK序列化
+        RedisSerializer<Object> valueSerializer = "jdk".equals(valueCodec) ? RedisSerializer.java() : new JsonbRedisSerializer();
+        redisTemplate.setValueSerializer(valueSerializer);
+        redisTemplate.setHashValueSerializer(valueSerializer);
+
         // 返回配置完成的RedisTemplate实例
         return redisTemplate;
     }
+
+    /**
+     * 配置Redis消息监听容器
+     * 各节点通过该容器订阅缓存失效等广播消息，监听器由使用方在初始化时自行注册
+     *
+     * @param redisCommandFactory Redis连接工厂，用于创建与Redis服务器的连接
+     * @return 配置完成的Redis消息监听容器
+     */
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory redisCommandFactory) {
+        // 创建消息监听容器并设置连接工厂
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(redisCommandFactory);
+
+        // 返回配置完成的消息监听容器
+        return container;
+    }
 }
@@ -0,0 +1,30 @@
+package reggietakeout.controller;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reggietakeout.cache.MenuCache;
+import reggietakeout.common.R;
+
+import java.util.Map;
+
+@RestController
+@Slf4j
+@RequestMapping("/cache")
+public class CacheController {
+    @Autowired
+    private MenuCache menuCache;
+
+    /**
+     * 获取菜品、套餐列表缓存的命中统计
+     * 分别返回进程内一级缓存和Redis二级缓存的命中与未命中次数
+     *
+     * @return 返回包含各级缓存统计信息的响应对象
+     */
+    @GetMapping("/stats")
+    public R<Map<String, Object>> stats() {
+        return R.success(menuCache.stats());
+    }
+}
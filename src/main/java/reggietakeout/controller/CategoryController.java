@@ -4,9 +4,11 @@ import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
+import reggietakeout.cache.CategoryDictionary;
 import reggietakeout.common.R;
 import reggietakeout.entity.Category;
 import reggietakeout.service.CategoryService;
+import reggietakeout.service.MenuSnapshotService;
 
 import java.util.List;
 
@@ -16,6 +18,10 @@ import java.util.List;
 public class CategoryController {
     @Autowired
     private CategoryService categoryService;
+    @Autowired
+    private MenuSnapshotService menuSnapshotService;
+    @Autowired
+    private CategoryDictionary categoryDictionary;
 
     /**
      * 处理新增分类的请求
@@ -33,6 +39,11 @@ public class CategoryController {
         // 调用服务层方法插入新的分类信息
         categoryService.insert(category);
 
+        // 分类变更会影响菜单结构，递增菜单版本号
+        menuSnapshotService.refresh();
+        // 重新加载分类字典，并通知其他节点同步刷新
+        categoryDictionary.refresh();
+
         // 返回成功响应，表示新增分类成功
         return R.success("新增分类成功");
     }
@@ -69,6 +80,11 @@ public class CategoryController {
         // 调用服务层方法，根据id删除分类信息
         categoryService.deleteById(id);
 
+        // 分类变更会影响菜单结构，递增菜单版本号
+        menuSnapshotService.refresh();
+        // 重新加载分类字典，并通知其他节点同步刷新
+        categoryDictionary.refresh();
+
         // 返回成功响应，表示删除成功
         return R.success("删除成功");
     }
@@ -88,6 +104,11 @@ public class CategoryController {
         // 调用服务层方法，根据传入的Category对象更新数据库中的分类信息
         categoryService.updateById(category);
 
+        // 分类变更会影响菜单结构，递增菜单版本号
+        menuSnapshotService.refresh();
+        // 重新加载分类字典，并通知其他节点同步刷新
+        categoryDictionary.refresh();
+
         // 返回成功响应，包含成功消息
         return R.success("修改分类信息成功");
     }
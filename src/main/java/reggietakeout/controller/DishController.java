@@ -4,33 +4,41 @@ import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
+import reggietakeout.cache.CacheInvalidator;
+import reggietakeout.cache.MenuCache;
+import reggietakeout.common.CursorPage;
 import reggietakeout.common.R;
 import reggietakeout.dto.DishDto;
 import reggietakeout.entity.Dish;
 import reggietakeout.entity.DishFlavor;
-import reggietakeout.service.CategoryService;
 import reggietakeout.service.DishFlavorService;
 import reggietakeout.service.DishService;
+import reggietakeout.service.MenuAssemblyService;
+import reggietakeout.service.MenuBulkService;
+import reggietakeout.service.MenuSnapshotService;
 
 import java.util.List;
-import java.util.Set;
-import java.util.concurrent.TimeUnit;
 
 @RestController
 @RequestMapping("/dish")
 @Slf4j
 public class DishController {
     @Autowired
-    private RedisTemplate<String, Object> redisTemplate;
+    private MenuCache menuCache;
+    @Autowired
+    private CacheInvalidator cacheInvalidator;
     @Autowired
     private DishService dishService;
     @Autowired
     private DishFlavorService dishFlavorService;
     @Autowired
-    private CategoryService categoryService;
+    private MenuAssemblyService menuAssemblyService;
+    @Autowired
+    private MenuBulkService menuBulkService;
+    @Autowired
+    private MenuSnapshotService menuSnapshotService;
 
     /**
      * 处理新增菜品的请求
@@ -52,8 +60,11 @@ public class DishController {
         // 调用 dishFlavorService 的 insert 方法保存菜品的口味信息
         dishFlavorService.insert(dishDto);
 
-        // 删除 Redis 中缓存的该分类下的菜品信息，确保数据一致性
-        redisTemplate.delete("dish_" + dishDto.getCategoryId() + "_1");
+        // 登记该分类下菜品的缓存键，事务提交后删除并在延迟后再次删除，避免并发请求把提交前的旧数据写回缓存
+        cacheInvalidator.invalidate(MenuCache.dishKey(dishDto.getCategoryId(), 1));
+
+        // 递增菜单版本号，菜单快照将在下一次请求时重新构建
+        menuSnapshotService.refresh();
 
         // 返回成功响应，表示菜品新增成功
         return R.success("新增菜品成功");
@@ -65,35 +76,33 @@ public class DishController {
      * 如果查询成功，进一步将查询结果转换为DishDto对象列表，并设置相应的菜品分类名称
      * 最后，将转换后的数据封装到Page对象中返回
      *
+     * 传入cursor参数时改用游标分页，按更新时间和ID降序从游标位置开始读取，不统计总数
+     *
      * @param page     页面号，用于指定从哪一页开始查询
      * @param pageSize 页面大小，用于指定每页显示的记录数
      * @param name     菜品名称，用于模糊查询
+     * @param cursor   游标分页的游标，第一页传入空字符串，不传时使用页码分页
+     * @param countMode 总数统计方式：exact、cached、estimated或none，不传时使用配置的默认方式
      * @return 返回一个封装了菜品信息列表的响应对象
      */
     @GetMapping("/page")
-    public R<Page<DishDto>> page(int page, int pageSize, String name) {
+    public R<Page<DishDto>> page(@RequestParam(defaultValue = "1") int page, int pageSize, String name, String cursor, String countMode) {
+        // 游标分页：从上一页最后一条记录之后开始读取，查询耗时与翻页深度无关
+        if (cursor != null) {
+            CursorPage<Dish> cursorPage = dishService.selectCursorPage(new CursorPage<>(cursor, pageSize), name);
+            return R.success(cursorPage.withRecords(menuAssemblyService.assembleDishPage(cursorPage.getRecords())));
+        }
+
         // 创建Page对象，用于封装分页查询的参数
         Page<Dish> pageInfo = new Page<>(page, pageSize);
         // 调用服务层方法，执行分页查询
-        dishService.selectPage(pageInfo, name);
+        dishService.selectPage(pageInfo, name, countMode);
 
         // 获取查询结果中的记录列表
         List<Dish> dishes = pageInfo.getRecords();
 
-        // 将查询到的Dish对象转换为DishDto对象，并设置菜品分类名称
-        List<DishDto> dishDtos = dishes.stream()
-                .map(dish -> {
-                    DishDto dishDto = new DishDto();
-                    // 复制Dish对象的属性到DishDto对象
-                    BeanUtils.copyProperties(dish, dishDto);
-
-                    // 根据菜品分类ID查询分类名称，并设置到DishDto对象
-                    String categoryName = categoryService.selectById(dish.getCategoryId()).getName();
-                    dishDto.setCategoryName(categoryName);
-
-                    return dishDto;
-                })
-                .toList();
+        // 将查询到的Dish对象批量转换为DishDto对象，并设置菜品分类名称
+        List<DishDto> dishDtos = menuAssemblyService.assembleDishPage(dishes);
 
         // 创建一个新的Page对象，用于封装转换后的查询结果
         Page<DishDto> pageResult = new Page<>();
@@ -158,8 +167,11 @@ public class DishController {
         // 调用dishFlavorService的updateDishFlavor方法，更新与菜品相关的风味信息
         dishFlavorService.updateDishFlavor(dishDto);
 
-        // 删除 Redis 中缓存的该分类下的菜品信息，确保数据一致性
-        redisTemplate.delete("dish_" + dishDto.getCategoryId() + "_1");
+        // 登记该分类下菜品的缓存键，事务提交后删除并在延迟后再次删除，避免并发请求把提交前的旧数据写回缓存
+        cacheInvalidator.invalidate(MenuCache.dishKey(dishDto.getCategoryId(), 1));
+
+        // 递增菜单版本号，菜单快照将在下一次请求时重新构建
+        menuSnapshotService.refresh();
 
         // 返回成功响应，表示菜品信息修改成功
         return R.success("修改菜品信息成功");
@@ -174,21 +186,11 @@ public class DishController {
      */
     @PostMapping("/status/0")
     public R<String> noSell(@RequestParam("ids") List<Long> ids) {
-        // 将输入的字符串按逗号分割，并转换为Long型的ID列表
-        ids.stream()
-                // 创建Dish对象，设置ID和状态为0（表示停止销售）
-                .map(id -> {
-                    Dish dish = new Dish();
-                    dish.setId(id);
-                    dish.setStatus(0);
-                    return dish;
-                })
-                // 遍历列表，调用服务层方法更新每个菜品的状态
-                .forEach(dishService::updateById);
-
-        // 删除Redis中与菜品相关的缓存
-        Set<String> dishKeys = redisTemplate.keys("dish_*");
-        redisTemplate.delete(dishKeys);
+        // 使用一条UPDATE语句将这些菜品的状态更新为0（表示停止销售），事务提交后只删除受影响分类的缓存
+        menuBulkService.updateDishStatus(ids, 0);
+
+        // 递增菜单版本号，菜单快照将在下一次请求时重新构建
+        menuSnapshotService.refresh();
 
         // 返回操作成功的响应
         return R.success("停售成功");
@@ -203,21 +205,11 @@ public class DishController {
      */
     @PostMapping("/status/1")
     public R<String> yesSell(@RequestParam("ids") List<Long> ids) {
-        // 将传入的ID字符串按逗号分割，并转换为Long类型，创建Dish对象，设置其ID和状态，然后调用更新方法
-        ids.stream()
-                .map(id -> {
-                            // 创建一个新的Dish对象，并设置其ID和状态为0（起售状态）
-                            Dish dish = new Dish();
-                            dish.setId(id);
-                            dish.setStatus(1);
-                            return dish;
-                        }
-                ).toList()
-                .forEach(dishService::updateById);
-
-        // 删除Redis中与菜品相关的缓存
-        Set<String> dishKeys = redisTemplate.keys("dish_*");
-        redisTemplate.delete(dishKeys);
+        // 使用一条UPDATE语句将这些菜品的状态更新为1（起售状态），事务提交后只删除受影响分类的缓存
+        menuBulkService.updateDishStatus(ids, 1);
+
+        // 递增菜单版本号，菜单快照将在下一次请求时重新构建
+        menuSnapshotService.refresh();
 
         // 返回成功响应，表示起售操作成功
         return R.success("起售成功");
@@ -226,7 +218,7 @@ public class DishController {
     /**
      * 删除菜品及其对应口味信息
      * <p>
-     * 通过传入的菜品ID列表，首先删除每个菜品对应的口味信息，然后批量删除菜品本身
+     * 通过传入的菜品ID列表，首先批量删除这些菜品的口味信息，然后批量删除菜品本身，语句数量与菜品数量无关
      * 此方法使用了事务注解，确保操作的原子性，即要么全部删除成功，要么全部不删，避免数据不一致
      *
      * @param ids 要删除的菜品ID列表
@@ -235,15 +227,11 @@ public class DishController {
     @DeleteMapping()
     @Transactional
     public R<String> delete(@RequestParam("ids") List<Long> ids) {
-        // 遍历菜品ID列表，删除每个菜品对应的口味信息
-        ids.forEach(id -> dishFlavorService.deleteByDishId(id));
-
-        // 批量删除菜品
-        dishService.removeBatchByIds(ids);
+        // 用一条IN语句删除口味、一条IN语句删除菜品，事务提交后只删除受影响分类的缓存
+        menuBulkService.deleteDishes(ids);
 
-        // 删除Redis中与菜品相关的缓存
-        Set<String> dishKeys = redisTemplate.keys("dish_*");
-        redisTemplate.delete(dishKeys);
+        // 递增菜单版本号，菜单快照将在下一次请求时重新构建
+        menuSnapshotService.refresh();
 
         // 返回删除成功的响应
         return R.success("删除成功");
@@ -258,37 +246,19 @@ public class DishController {
      */
     @GetMapping("/list")
     public R<List<DishDto>> dishList(@RequestParam("categoryId") Long categoryId, @RequestParam("status") Integer status) {
-        // 构造缓存键值
-        String key = "dish_" + categoryId + "_" + status;
-        // 检查缓存是否存在
-        if (redisTemplate.hasKey(key))
-            return R.success((List<DishDto>) redisTemplate.opsForValue().get(key));
-
-        // 根据类别ID查询菜品列表
-        List<Dish> dishes = dishService.selectByCategoryId(categoryId);
-
-        // 将菜品列表转换为菜品DTO列表，以便返回更丰富的数据结构
-        List<DishDto> dishDtos = dishes.stream()
-                // 过滤出符合指定状态的菜品
-                .filter(dish -> dish.getStatus() == status)
-                // 将菜品对象转换为菜品DTO对象
-                .map(dish -> {
-                    // 创建一个新的菜品DTO对象
-                    DishDto dishDto = new DishDto();
-                    // 将菜品对象的属性复制到菜品DTO对象中
-                    BeanUtils.copyProperties(dish, dishDto);
-
-                    // 根据菜品ID查询对应的口味列表
-                    List<DishFlavor> flavors = dishFlavorService.selectByDishId(dish.getId());
-
-                    // 将口味列表设置到菜品DTO对象中
-                    dishDto.setFlavors(flavors);
-
-                    // 返回构建好的菜品DTO对象
-                    return dishDto;
-                }).toList();
-
-        redisTemplate.opsForValue().set(key, dishDtos, 15, TimeUnit.MINUTES);
+        // 依次查询一级缓存和Redis缓存，均未命中时从数据库加载
+        List<DishDto> dishDtos = menuCache.get(MenuCache.dishKey(categoryId, status), () -> {
+            // 根据类别ID查询菜品列表
+            List<Dish> dishes = dishService.selectByCategoryId(categoryId);
+
+            // 过滤出符合指定状态的菜品
+            List<Dish> dishesOnStatus = dishes.stream()
+                    .filter(dish -> dish.getStatus().equals(status))
+                    .toList();
+
+            // 将菜品列表批量转换为带口味信息的菜品DTO列表，口味通过一次IN查询取回
+            return menuAssemblyService.assembleDishes(dishesOnStatus);
+        });
 
         // 返回包含菜品DTO列表的成功响应
         return R.success(dishDtos);
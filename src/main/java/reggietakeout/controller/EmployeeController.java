@@ -6,6 +6,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.util.DigestUtils;
 import org.springframework.web.bind.annotation.*;
+import reggietakeout.common.CursorPage;
 import reggietakeout.common.R;
 import reggietakeout.entity.Employee;
 import reggietakeout.service.EmployeeService;
@@ -94,15 +95,21 @@ public class EmployeeController {
      * @param page     分页查询的页码
      * @param pageSize 每页显示的记录数
      * @param name     员工姓名，用于模糊查询
+     * @param cursor   游标分页的游标，第一页传入空字符串，不传时使用页码分页
+     * @param countMode 总数统计方式：exact、cached、estimated或none，不传时使用配置的默认方式
      * @return 返回分页查询结果封装在R对象中
      */
     @GetMapping("/page")
-    public R<Page<Employee>> page(int page, int pageSize, String name) {
+    public R<Page<Employee>> page(@RequestParam(defaultValue = "1") int page, int pageSize, String name, String cursor, String countMode) {
+        // 游标分页：按更新时间和ID降序从游标位置开始读取，不统计总数
+        if (cursor != null)
+            return R.success(employeeService.selectCursorPage(new CursorPage<>(cursor, pageSize), name));
+
         // 创建分页对象，设置分页参数
         Page<Employee> pageInfo = new Page<>(page, pageSize);
 
         // 调用服务层方法，查询分页数据
-        employeeService.selectPage(pageInfo, name);
+        employeeService.selectPage(pageInfo, name, countMode);
 
         // 返回分页结果
         return R.success(pageInfo);
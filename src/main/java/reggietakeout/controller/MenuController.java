@@ -0,0 +1,42 @@
+package reggietakeout.controller;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import reggietakeout.common.R;
+import reggietakeout.dto.MenuSnapshotDto;
+import reggietakeout.service.MenuSnapshotService;
+
+@RestController
+@Slf4j
+@RequestMapping("/menu")
+public class MenuController {
+    @Autowired
+    private MenuSnapshotService menuSnapshotService;
+
+    /**
+     * 获取完整的在售菜单快照
+     * <p>
+     * 菜单快照以版本号作为ETag，客户端携带的If-None-Match与当前版本一致时直接返回304，不返回响应体
+     * 版本号只在菜品或套餐数据变更时递增，因此绝大多数请求无需重新构建或传输菜单
+     *
+     * @param webRequest 当前请求，用于校验If-None-Match并设置ETag响应头
+     * @return 返回包含完整菜单的响应对象，未变更时返回null并响应304
+     */
+    @GetMapping("/snapshot")
+    public R<MenuSnapshotDto> snapshot(WebRequest webRequest) {
+        // 获取当前菜单版本号，并据此生成ETag
+        long version = menuSnapshotService.currentVersion();
+        String eTag = "\"menu-" + version + "\"";
+
+        // 客户端已持有当前版本的菜单，直接返回304
+        if (webRequest.checkNotModified(eTag))
+            return null;
+
+        // 返回当前版本的菜单快照
+        return R.success(menuSnapshotService.getSnapshot(version));
+    }
+}
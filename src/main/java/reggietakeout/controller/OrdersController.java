@@ -1,25 +1,41 @@
 package reggietakeout.controller;
 
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
 import reggietakeout.common.BaseContext;
+import reggietakeout.common.CursorPage;
 import reggietakeout.common.R;
+import reggietakeout.dto.OrderStatusDto;
 import reggietakeout.dto.OrdersDto;
+import reggietakeout.dto.OrdersQueryDto;
 import reggietakeout.entity.AddressBook;
 import reggietakeout.entity.OrderDetail;
 import reggietakeout.entity.Orders;
 import reggietakeout.entity.ShoppingCart;
 import reggietakeout.service.AddressBookService;
 import reggietakeout.service.OrderDetailService;
+import reggietakeout.service.OrderExportService;
+import reggietakeout.service.OrderIngestService;
+import reggietakeout.service.OrderStatusService;
 import reggietakeout.service.OrdersService;
 import reggietakeout.service.ShoppingCartService;
 
-import java.math.BigDecimal;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 @RestController
 @Slf4j
@@ -33,15 +49,22 @@ public class OrdersController {
     private ShoppingCartService shoppingCartService;
     @Autowired
     private OrderDetailService orderDetailService;
+    @Autowired
+    private OrderIngestService orderIngestService;
+    @Autowired
+    private OrderStatusService orderStatusService;
+    @Autowired
+    private OrderExportService orderExportService;
 
     /**
      * 处理订单提交请求
      * <p>
      * 该方法主要用于接收用户提交的订单信息，进行订单创建，并保存订单详情同时清空购物车
      * 使用@PostMapping注解限定该方法响应POST请求，表示订单的创建
+     * 启用合并提交时只完成校验和计价，订单放入下单队列后立即返回订单ID，写入结果通过/order/status/{id}查询
      *
      * @param orders 用户提交的订单对象，包含订单的相关信息
-     * @return 返回一个封装了成功消息的响应对象
+     * @return 返回一个封装了成功消息的响应对象，启用合并提交时为订单ID
      * @Transactional注解表明该方法中的操作需要事务管理，确保数据一致性
      */
     @PostMapping("/submit")
@@ -52,31 +75,19 @@ public class OrdersController {
 
         // 获取当前用户ID
         Long userId = BaseContext.getCurrentId();
+
+        // 合并提交：校验计价后入队，由写入线程将多个订单合并在一个事务中提交
+        if (orderIngestService.isEnabled())
+            return R.success(orderIngestService.submit(orders, userId).toString());
+
         // 根据用户选择的地址簿ID获取地址簿信息
         AddressBook addressBook = addressBookService.getById(orders.getAddressBookId());
 
-        // 获取当前用户购物车中的所有商品
+        // 获取当前用户购物车中所有商品的一致性快照
         List<ShoppingCart> shoppingCarts = shoppingCartService.selectByUserId(userId);
 
-        // 将购物车中的商品转换为订单详情列表
-        List<OrderDetail> orderDetails = shoppingCarts.stream().map(shoppingCart -> {
-            // 创建一个新的订单详情对象
-            OrderDetail orderDetail = new OrderDetail();
-            // 将购物车中的商品信息复制到订单详情中，但不包括ID
-            BeanUtils.copyProperties(shoppingCart, orderDetail, "id");
-
-            return orderDetail;
-        }).toList();
-
-        BigDecimal totalAmount = BigDecimal.ZERO;
-
-        // 计算订单总金额
-        for (OrderDetail orderDetail : orderDetails) {
-            totalAmount = totalAmount.add(orderDetail.getAmount().multiply(BigDecimal.valueOf(orderDetail.getNumber())));
-        }
-
-        // 设置订单总金额
-        orders.setAmount(totalAmount);
+        // 将购物车中的商品转换为订单详情列表，并计算订单总金额
+        List<OrderDetail> orderDetails = ordersService.priceOrders(orders, shoppingCarts);
 
         // 插入订单，返回订单ID
         Long orderId = ordersService.insertOrders(orders, addressBook);
@@ -87,45 +98,49 @@ public class OrdersController {
         // 批量保存订单详情
         orderDetailService.saveBatch(orderDetails);
 
-        // 用户下单后，清空购物车
-        shoppingCartService.deleteByUserId(userId);
+        // 用户下单后，从购物车中移除已下单的商品
+        shoppingCartService.removeOrdered(userId, shoppingCarts);
         // 返回成功消息
         return R.success("下单成功");
     }
 
+    /**
+     * 查询当前用户订单的写入状态
+     *
+     * @param id 下单时返回的订单ID
+     * @return 返回queued（排队中）、committed（已写入）、failed（写入失败）或unknown（不存在或不属于当前用户）
+     */
+    @GetMapping("/status/{id}")
+    public R<String> status(@PathVariable Long id) {
+        return R.success(orderIngestService.getStatus(id, BaseContext.getCurrentId()));
+    }
+
     /**
      * 处理用户页面的分页查询请求
+     * 传入cursor参数时改用游标分页，按下单时间和ID降序从游标位置开始读取，不统计总数
      *
      * @param page     当前页码，用于指定从哪一页开始查询
      * @param pageSize 每页记录数，用于限制每页显示的数据量
+     * @param cursor   游标分页的游标，第一页传入空字符串，不传时使用页码分页
+     * @param countMode 总数统计方式：exact、cached、estimated或none，不传时使用配置的默认方式
      * @return 返回一个封装了分页信息的对象，包含订单数据
      */
     @GetMapping("/userPage")
-    public R<Page<OrdersDto>> page(int page, int pageSize) {
+    public R<Page<OrdersDto>> page(@RequestParam(defaultValue = "1") int page, int pageSize, String cursor, String countMode) {
+        // 游标分页：从上一页最后一条记录之后开始读取，深度翻页时耗时保持不变
+        if (cursor != null) {
+            CursorPage<Orders> cursorPage = ordersService.selectCursorPage(new CursorPage<>(cursor, pageSize));
+            return R.success(cursorPage.withRecords(toOrdersDtos(cursorPage.getRecords())));
+        }
+
         // 创建一个Page对象，用于存储分页查询的结果
         Page<Orders> pageInfo = new Page<>(page, pageSize);
 
         // 调用服务层方法执行分页查询
-        ordersService.selectPage(pageInfo);
-
-        // 获取查询结果中的订单记录列表
-        List<Orders> orderss = pageInfo.getRecords();
+        ordersService.selectPage(pageInfo, countMode);
 
         // 将订单记录转换为DTO形式，并关联查询订单详情
-        List<OrdersDto> ordersDtos = orderss.stream()
-                .map(orders -> {
-                    OrdersDto ordersDto = new OrdersDto();
-                    BeanUtils.copyProperties(orders, ordersDto);
-
-                    // 根据订单ID查询订单详情
-                    Long ordersId = orders.getId();
-                    List<OrderDetail> orderDetails = orderDetailService.selectByOrderId(ordersId);
-
-                    ordersDto.setOrderDetails(orderDetails);
-
-                    return ordersDto;
-                })
-                .toList();
+        List<OrdersDto> ordersDtos = toOrdersDtos(pageInfo.getRecords());
 
         // 创建一个新的Page对象用于存储转换后的DTO数据
         Page<OrdersDto> pageResult = new Page<>();
@@ -137,4 +152,117 @@ public class OrdersController {
         // 返回查询结果，封装在R对象中表示成功
         return R.success(pageResult);
     }
+
+    /**
+     * 再来一单：按当前价格把订单中仍在售卖的菜品和套餐放入购物车，替换购物车中原有的商品
+     *
+     * @param orders 包含订单ID的订单对象
+     * @return 返回替换后的购物车列表
+     */
+    @PostMapping("/again")
+    public R<List<ShoppingCart>> again(@RequestBody Orders orders) {
+        log.info("再来一单：{}", orders.getId());
+
+        return R.success(ordersService.again(orders.getId(), BaseContext.getCurrentId()));
+    }
+
+    /**
+     * 修改订单状态，支持单个订单和批量修改
+     * 只有当前状态允许转换到目标状态的订单会被修改，例如只有待派送的订单可以派送
+     *
+     * @param orderStatusDto 订单ID或订单ID列表，以及目标状态
+     * @return 返回表示操作结果的响应对象
+     */
+    @PutMapping()
+    public R<String> updateStatus(@RequestBody OrderStatusDto orderStatusDto) {
+        log.info("修改订单状态：{}", orderStatusDto);
+
+        List<Long> ids = orderStatusDto.getIds();
+        if (ids == null && orderStatusDto.getId() != null)
+            ids = List.of(orderStatusDto.getId());
+        if (ids == null || ids.isEmpty())
+            return R.error("订单ID不能为空");
+        if (orderStatusDto.getStatus() == null)
+            return R.error("订单状态无效");
+
+        List<Long> changed = orderStatusService.transition(ids, orderStatusDto.getStatus());
+
+        if (changed.isEmpty())
+            return R.error("订单当前状态不能修改为该状态");
+        if (changed.size() < ids.size())
+            return R.success("已修改" + changed.size() + "个订单，其余订单当前状态不能修改为该状态");
+        return R.success("修改成功");
+    }
+
+    /**
+     * 后台订单明细的分页查询
+     * 支持按订单号前缀、状态、下单时间范围、收货电话和收货人过滤，结果按下单时间和ID降序排列
+     * 传入cursor参数时改用游标分页，耗时与翻页深度无关
+     *
+     * @param page      当前页码
+     * @param pageSize  每页记录数
+     * @param query     查询条件
+     * @param cursor    游标分页的游标，第一页传入空字符串，不传时使用页码分页
+     * @param countMode 总数统计方式：exact、cached、estimated或none，不传时使用配置的默认方式
+     * @return 返回包含订单信息的分页对象
+     */
+    @GetMapping("/page")
+    public R<Page<Orders>> adminPage(@RequestParam(defaultValue = "1") int page, int pageSize, OrdersQueryDto query, String cursor, String countMode) {
+        // 游标分页：从上一页最后一条记录之后开始读取，不统计总数
+        if (cursor != null)
+            return R.success(ordersService.selectAdminCursorPage(new CursorPage<>(cursor, pageSize), query));
+
+        return R.success(ordersService.selectAdminPage(new Page<>(page, pageSize), query, countMode));
+    }
+
+    /**
+     * 导出下单时间范围内的订单及订单详情为CSV文件
+     * 查询结果逐行写入响应输出流，不在内存中保存整个结果集，可以导出任意大小的时间范围
+     *
+     * @param beginTime 下单时间范围的开始时间（包含）
+     * @param endTime   下单时间范围的结束时间（不包含）
+     * @param response  HTTP响应，CSV内容直接写入其输出流
+     * @throws IOException 写入响应失败时抛出
+     */
+    @GetMapping("/export")
+    public void export(@RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime beginTime,
+                       @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime endTime,
+                       HttpServletResponse response) throws IOException {
+        log.info("导出订单：{} - {}", beginTime, endTime);
+
+        // 设置响应的内容类型和下载文件名，写入BOM以便Excel识别UTF-8编码
+        response.setContentType("text/csv;charset=UTF-8");
+        response.setHeader("Content-Disposition", "attachment; filename=orders.csv");
+        Writer writer = new BufferedWriter(new OutputStreamWriter(response.getOutputStream(), StandardCharsets.UTF_8), 64 * 1024);
+        writer.write('\uFEFF');
+
+        long rows = orderExportService.exportCsv(beginTime, endTime, writer);
+        log.info("导出订单完成，共{}行", rows);
+    }
+
+    /**
+     * 将订单记录转换为DTO形式，并关联查询订单详情
+     * 所有订单的详情通过一条IN查询取回，再在内存中按订单ID分组
+     *
+     * @param orderss 订单记录列表
+     * @return 返回带订单详情的订单DTO列表
+     */
+    private List<OrdersDto> toOrdersDtos(List<Orders> orderss) {
+        // 一次性查询当前页所有订单的详情，并按订单ID分组
+        List<Long> orderIds = orderss.stream().map(Orders::getId).toList();
+        Map<Long, List<OrderDetail>> orderDetailMap = orderDetailService.selectByOrderIds(orderIds).stream()
+                .collect(Collectors.groupingBy(OrderDetail::getOrderId));
+
+        return orderss.stream()
+                .map(orders -> {
+                    OrdersDto ordersDto = new OrdersDto();
+                    BeanUtils.copyProperties(orders, ordersDto);
+
+                    // 从分组结果中获取该订单的详情，没有详情时使用空列表
+                    ordersDto.setOrderDetails(orderDetailMap.getOrDefault(orders.getId(), new ArrayList<>()));
+
+                    return ordersDto;
+                })
+                .toList();
+    }
 }
@@ -1,39 +1,44 @@
 package reggietakeout.controller;
 
-import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
+import reggietakeout.cache.CacheInvalidator;
+import reggietakeout.cache.MenuCache;
+import reggietakeout.common.CursorPage;
 import reggietakeout.common.R;
 import reggietakeout.dto.SetmealDto;
-import reggietakeout.entity.Category;
 import reggietakeout.entity.Setmeal;
 import reggietakeout.entity.SetmealDish;
-import reggietakeout.exception.CustomException;
-import reggietakeout.service.CategoryService;
+import reggietakeout.service.MenuAssemblyService;
+import reggietakeout.service.MenuBulkService;
+import reggietakeout.service.MenuSnapshotService;
 import reggietakeout.service.SetmealDishService;
 import reggietakeout.service.SetmealService;
 
 import java.util.List;
-import java.util.Set;
-import java.util.concurrent.TimeUnit;
 
 @RestController
 @RequestMapping("/setmeal")
 @Slf4j
 public class SetmealController {
     @Autowired
-    private RedisTemplate<String, Object> redisTemplate;
+    private MenuCache menuCache;
+    @Autowired
+    private CacheInvalidator cacheInvalidator;
     @Autowired
     private SetmealService setmealService;
     @Autowired
     private SetmealDishService setmealDishService;
     @Autowired
-    private CategoryService categoryService;
+    private MenuAssemblyService menuAssemblyService;
+    @Autowired
+    private MenuBulkService menuBulkService;
+    @Autowired
+    private MenuSnapshotService menuSnapshotService;
 
     /**
      * 保存套餐信息
@@ -60,8 +65,11 @@ public class SetmealController {
         // 保存与套餐关联的菜品信息到数据库
         setmealDishService.insertSetmealDish(setmealDto);
 
-        // 删除Redis中缓存的套餐数据，以保持数据一致性
-        redisTemplate.delete("setmeal_" + setmealDto.getCategoryId() + "_1");
+        // 登记该分类下套餐的缓存键，事务提交后删除并在延迟后再次删除，避免并发请求把提交前的旧数据写回缓存
+        cacheInvalidator.invalidate(MenuCache.setmealKey(setmealDto.getCategoryId(), 1));
+
+        // 递增菜单版本号，菜单快照将在下一次请求时重新构建
+        menuSnapshotService.refresh();
 
         // 返回表示操作成功的响应对象
         return R.success("新增套餐成功");
@@ -73,38 +81,29 @@ public class SetmealController {
      * @param page     当前页码
      * @param pageSize 每页记录数
      * @param name     套餐名称关键字
+     * @param cursor   游标分页的游标，第一页传入空字符串，不传时使用页码分页
+     * @param countMode 总数统计方式：exact、cached、estimated或none，不传时使用配置的默认方式
      * @return 返回包含套餐信息的分页对象
      */
     @GetMapping("/page")
-    public R<Page<SetmealDto>> page(int page, int pageSize, String name) {
+    public R<Page<SetmealDto>> page(@RequestParam(defaultValue = "1") int page, int pageSize, String name, String cursor, String countMode) {
+        // 游标分页：按更新时间和ID降序从游标位置开始读取，不统计总数
+        if (cursor != null) {
+            CursorPage<Setmeal> cursorPage = setmealService.selectCursorPage(new CursorPage<>(cursor, pageSize), name);
+            return R.success(cursorPage.withRecords(menuAssemblyService.assembleSetmealPage(cursorPage.getRecords())));
+        }
+
         // 创建Page对象用于存储分页信息
         Page<Setmeal> pageInfo = new Page<>(page, pageSize);
 
         // 调用service方法，根据页码、每页记录数和套餐名称关键字查询套餐信息
-        setmealService.selectPage(pageInfo, name);
+        setmealService.selectPage(pageInfo, name, countMode);
 
         // 获取查询结果中的套餐记录列表
         List<Setmeal> setmeals = pageInfo.getRecords();
 
-        // 将套餐记录转换为套餐DTO列表，便于前端使用
-        List<SetmealDto> setmealDtos = setmeals.stream()
-                .map(setmeal -> {
-                    SetmealDto setmealDto = new SetmealDto();
-
-                    // 复制套餐基本信息到DTO
-                    BeanUtils.copyProperties(setmeal, setmealDto);
-
-                    // 根据套餐ID查询套餐菜品信息
-                    List<SetmealDish> setmealDishes = setmealDishService.selectBySetmealId(setmeal.getId());
-                    setmealDto.setSetmealDishes(setmealDishes);
-
-                    // 查询套餐所属分类信息
-                    Category category = categoryService.getById(setmeal.getCategoryId());
-                    setmealDto.setCategoryName(category.getName());
-
-                    return setmealDto;
-                })
-                .toList();
+        // 将套餐记录批量转换为套餐DTO列表，套餐菜品通过IN查询一次取回，分类名称从分类字典获取
+        List<SetmealDto> setmealDtos = menuAssemblyService.assembleSetmealPage(setmeals);
 
         // 创建Page对象用于存储转换后的套餐DTO分页信息
         Page<SetmealDto> pageResult = new Page<>();
@@ -128,17 +127,11 @@ public class SetmealController {
      */
     @PostMapping("/status/0")
     public R<String> noSell(@RequestParam("ids") List<Long> ids) {
-        // 遍历每个套餐ID，更新其状态为停售
-        ids.forEach(id -> {
-            Setmeal setmeal = new Setmeal();
-            setmeal.setId(id);
-            setmeal.setStatus(0);
-            setmealService.updateById(setmeal);
-        });
-
-        // 清除Redis中与套餐相关的缓存，确保数据一致性
-        Set<String> setmealKeys = redisTemplate.keys("setmeal_*");
-        redisTemplate.delete(setmealKeys);
+        // 使用一条UPDATE语句将这些套餐的状态更新为停售，事务提交后只删除受影响分类的缓存
+        menuBulkService.updateSetmealStatus(ids, 0);
+
+        // 递增菜单版本号，菜单快照将在下一次请求时重新构建
+        menuSnapshotService.refresh();
 
         // 返回成功消息，表示停售操作成功
         return R.success("停售成功");
@@ -153,17 +146,11 @@ public class SetmealController {
      */
     @PostMapping("/status/1")
     public R<String> yesSell(@RequestParam("ids") List<Long> ids) {
-        // 遍历每个菜品ID，将其状态更新为启售
-        ids.forEach(id -> {
-            Setmeal setmeal = new Setmeal();
-            setmeal.setId(id);
-            setmeal.setStatus(1);
-            setmealService.updateById(setmeal);
-        });
-
-        // 清除Redis中与套餐相关的缓存，确保数据一致性
-        Set<String> setmealKeys = redisTemplate.keys("setmeal_*");
-        redisTemplate.delete(setmealKeys);
+        // 使用一条UPDATE语句将这些套餐的状态更新为启售，事务提交后只删除受影响分类的缓存
+        menuBulkService.updateSetmealStatus(ids, 1);
+
+        // 递增菜单版本号，菜单快照将在下一次请求时重新构建
+        menuSnapshotService.refresh();
 
         // 返回成功响应，表示启售操作完成
         return R.success("启售成功");
@@ -179,27 +166,11 @@ public class SetmealController {
     @DeleteMapping()
     @Transactional
     public R<String> delete(@RequestParam("ids") List<Long> ids) {
-        // 遍历每个套餐ID
-        ids.forEach(id -> {
-            // 获取套餐的状态
-            Integer status = setmealService.getById(id).getStatus();
-
-            // 检查套餐是否正在售卖，如果是，则抛出异常
-            if (status == 1)
-                throw new CustomException("套餐正在售卖中，不能删除");
-
-            // 如果套餐不在售卖中，则进行删除操作
-            setmealService.removeById(id);
-        });
+        // 一条查询校验售卖状态，再分别用一条IN语句删除套餐菜品和套餐，事务提交后只删除受影响分类的缓存
+        menuBulkService.deleteSetmeals(ids);
 
-        // 删除与套餐关联的所有菜品信息
-        setmealDishService.remove(
-                new LambdaQueryWrapper<SetmealDish>()
-                        .in(SetmealDish::getSetmealId, ids));
-
-        // 清除Redis中与套餐相关的缓存，确保数据一致性
-        Set<String> setmealKeys = redisTemplate.keys("setmeal_*");
-        redisTemplate.delete(setmealKeys);
+        // 递增菜单版本号，菜单快照将在下一次请求时重新构建
+        menuSnapshotService.refresh();
 
         // 返回删除成功的响应
         return R.success("删除成功");
@@ -236,7 +207,7 @@ public class SetmealController {
      * 更新套餐信息
      * <p>
      * 该方法接收一个套餐信息对象（SetmealDto），并更新数据库中的相应记录
-     * 它首先删除现有的套餐菜品关联信息，然后更新套餐基本信息，最后重新插入更新后的套餐菜品关联信息
+     * 它首先更新套餐基本信息，然后将套餐菜品与现有记录比较，只写入发生变化的部分
      *
      * @param setmealDto 套餐信息对象，包含要更新的套餐及其关联的菜品信息
      * @return 返回一个表示操作结果的成功消息
@@ -247,11 +218,6 @@ public class SetmealController {
         // 记录日志，输出修改的套餐信息
         log.info("修改套餐信息，套餐信息：{}", setmealDto.toString());
 
-        // 删除现有的套餐菜品关联信息，以便后续重新插入更新后的信息
-        setmealDishService.remove(
-                new LambdaQueryWrapper<SetmealDish>()
-                        .eq(SetmealDish::getSetmealId, setmealDto.getId()));
-
         // 创建一个新的套餐对象，并从传入的套餐信息对象中复制属性
         Setmeal setmeal = new Setmeal();
         BeanUtils.copyProperties(setmealDto, setmeal);
@@ -259,11 +225,14 @@ public class SetmealController {
         // 更新数据库中的套餐信息
         setmealService.updateById(setmeal);
 
-        // 插入更新后的套餐菜品关联信息
-        setmealDishService.insertSetmealDish(setmealDto);
+        // 与现有的套餐菜品比较，只插入、更新或删除发生变化的部分
+        setmealDishService.updateSetmealDish(setmealDto);
+
+        // 登记该分类下套餐的缓存键，事务提交后删除并在延迟后再次删除，避免并发请求把提交前的旧数据写回缓存
+        cacheInvalidator.invalidate(MenuCache.setmealKey(setmealDto.getCategoryId(), 1));
 
-        // 删除Redis中缓存的套餐数据，以保持数据一致性
-        redisTemplate.delete("setmeal_" + setmealDto.getCategoryId() + "_1");
+        // 递增菜单版本号，菜单快照将在下一次请求时重新构建
+        menuSnapshotService.refresh();
 
         // 返回成功消息
         return R.success("修改成功");
@@ -271,7 +240,7 @@ public class SetmealController {
 
     /**
      * 根据类别ID和状态获取套餐列表
-     * 首先尝试从Redis缓存中获取数据，如果缓存不存在，则从数据库中查询，并将结果缓存到Redis中
+     * 依次尝试从进程内缓存和Redis缓存中获取数据，如果缓存都不存在，则从数据库中查询，并回填两级缓存
      *
      * @param categoryId 类别ID，用于筛选套餐类别
      * @param status     套餐状态，通常表示是否可用
@@ -279,18 +248,9 @@ public class SetmealController {
      */
     @GetMapping("/list")
     public R<List<Setmeal>> list(@RequestParam("categoryId") Long categoryId, @RequestParam("status") Integer status) {
-        // 构造缓存键值
-        String key = "setmeal_" + categoryId + "_" + status;
-        // 检查缓存是否存在
-        if (redisTemplate.hasKey(key))
-            // 如果缓存存在，直接返回缓存中的数据
-            return R.success((List<Setmeal>) redisTemplate.opsForValue().get(key));
-
-        // 如果缓存不存在，调用服务层方法从数据库中查询数据
-        List<Setmeal> setmeals = setmealService.selectByCategoryId(categoryId, status);
-
-        // 将查询到的数据存入缓存，并设置缓存过期时间
-        redisTemplate.opsForValue().set(key, setmeals, 15, TimeUnit.MINUTES);
+        // 依次查询一级缓存和Redis缓存，均未命中时调用服务层方法从数据库中查询数据
+        List<Setmeal> setmeals = menuCache.get(MenuCache.setmealKey(categoryId, status),
+                () -> setmealService.selectByCategoryId(categoryId, status));
 
         // 返回查询结果
         return R.success(setmeals);
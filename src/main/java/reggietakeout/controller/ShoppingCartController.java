@@ -5,6 +5,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 import reggietakeout.common.BaseContext;
 import reggietakeout.common.R;
+import reggietakeout.dto.CartOperationDto;
 import reggietakeout.entity.ShoppingCart;
 import reggietakeout.service.ShoppingCartService;
 
@@ -53,10 +54,24 @@ public class ShoppingCartController {
         return R.success("添加成功");
     }
 
+    /**
+     * 批量修改购物车
+     * 客户端可以合并短时间内的多次点击，一次提交一组按顺序执行的加购、减购、设置数量操作，所有操作原子生效
+     *
+     * @param operations 购物车操作列表，op为add、sub或set，number为数量
+     * @return 返回修改后的购物车列表
+     */
+    @PostMapping("/batch")
+    public R<List<ShoppingCart>> batch(@RequestBody List<CartOperationDto> operations) {
+        log.info("批量修改购物车：{}", operations);
+
+        return R.success(shoppingCartService.applyOperations(BaseContext.getCurrentId(), operations));
+    }
+
     /**
      * 处理减少购物车中菜品或套餐数量的请求
      *
-     * @param map 包含菜品ID（dishId）和套餐ID（setmealId）的映射
+     * @param map 包含菜品ID（dishId）、套餐ID（setmealId）和可选的菜品口味（dishFlavor）的映射
      * @return 返回表示操作成功的响应对象
      */
     @PostMapping("/sub")
@@ -67,11 +82,13 @@ public class ShoppingCartController {
         // 从请求体中获取菜品ID和套餐ID，并转换为Long类型
         Long dishId = map.get("dishId") == null ? null : Long.parseLong(map.get("dishId").toString());
         Long setmealId = map.get("setmealId") == null ? null : Long.parseLong(map.get("setmealId").toString());
+        // 客户端未传口味时减少该菜品任一口味的数量
+        String dishFlavor = map.get("dishFlavor") == null ? null : map.get("dishFlavor").toString();
         // 获取当前用户ID
         Long userId = BaseContext.getCurrentId();
 
         // 调用服务层方法，减少购物车中的菜品或套餐数量
-        shoppingCartService.deleteShoppingCart(dishId, setmealId, userId);
+        shoppingCartService.deleteShoppingCart(dishId, setmealId, dishFlavor, userId);
 
         // 返回操作成功的信息
         return R.success("减少成功");
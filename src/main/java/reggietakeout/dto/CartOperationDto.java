@@ -0,0 +1,14 @@
+package reggietakeout.dto;
+
+import lombok.Data;
+import reggietakeout.entity.ShoppingCart;
+
+@Data
+public class CartOperationDto extends ShoppingCart {
+    public static final String ADD = "add";
+    public static final String SUB = "sub";
+    public static final String SET = "set";
+
+    //操作类型：add加购、sub减购、set设置数量，加购和减购的数量为空时按1计算
+    private String op;
+}
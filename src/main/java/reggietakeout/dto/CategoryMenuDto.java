@@ -0,0 +1,14 @@
+package reggietakeout.dto;
+
+import lombok.Data;
+import reggietakeout.entity.Category;
+import reggietakeout.entity.Setmeal;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class CategoryMenuDto extends Category {
+    private List<DishDto> dishes = new ArrayList<>();
+    private List<Setmeal> setmeals = new ArrayList<>();
+}
@@ -0,0 +1,19 @@
+package reggietakeout.dto;
+
+import lombok.Data;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.List;
+
+@Data
+public class MenuSnapshotDto implements Serializable {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    //菜单版本号
+    private Long version;
+
+    //按分类组织的在售菜品和套餐
+    private List<CategoryMenuDto> categories;
+}
@@ -0,0 +1,48 @@
+package reggietakeout.dto;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+public class OrderExportDto {
+    //订单号
+    private String orderNumber;
+
+    //订单状态
+    private Integer status;
+
+    //下单时间
+    private LocalDateTime orderTime;
+
+    //结账时间
+    private LocalDateTime checkoutTime;
+
+    //支付方式
+    private Integer payMethod;
+
+    //订单实收金额
+    private BigDecimal orderAmount;
+
+    //收货人
+    private String consignee;
+
+    //手机号
+    private String phone;
+
+    //地址
+    private String address;
+
+    //菜品或套餐名称
+    private String name;
+
+    //口味
+    private String dishFlavor;
+
+    //数量
+    private Integer number;
+
+    //单价
+    private BigDecimal amount;
+}
@@ -0,0 +1,17 @@
+package reggietakeout.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class OrderStatusDto {
+    //订单ID，修改单个订单时使用
+    private Long id;
+
+    //订单ID列表，批量修改时使用
+    private List<Long> ids;
+
+    //目标状态:2：待派送，3：已派送，4：已完成，5：已取消
+    private Integer status;
+}
@@ -0,0 +1,29 @@
+package reggietakeout.dto;
+
+import lombok.Data;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDateTime;
+
+@Data
+public class OrdersQueryDto {
+    //订单号，按前缀匹配
+    private String number;
+
+    //订单状态
+    private Integer status;
+
+    //下单时间范围的开始时间
+    @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime beginTime;
+
+    //下单时间范围的结束时间
+    @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime endTime;
+
+    //收货电话
+    private String phone;
+
+    //收货人
+    private String consignee;
+}
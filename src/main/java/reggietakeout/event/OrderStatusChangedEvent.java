@@ -0,0 +1,14 @@
+package reggietakeout.event;
+
+import java.util.List;
+
+/**
+ * 订单状态变更事件，在修改状态的事务提交后发布
+ * 其他组件通过@EventListener监听即可得知订单状态的变化，无需轮询订单表
+ *
+ * @param orderIds   状态发生变化的订单ID
+ * @param fromStatus 变更前的状态
+ * @param toStatus   变更后的状态
+ */
+public record OrderStatusChangedEvent(List<Long> orderIds, Integer fromStatus, Integer toStatus) {
+}
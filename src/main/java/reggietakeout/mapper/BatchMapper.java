@@ -0,0 +1,15 @@
+package reggietakeout.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+
+import java.util.List;
+
+/**
+ * 支持多行插入的Mapper
+ * insertBatchSomeColumn由BatchSqlInjector注入，生成一条 INSERT ... VALUES (...),(...) 语句插入全部记录
+ *
+ * @param <T> 实体类型
+ */
+public interface BatchMapper<T> extends BaseMapper<T> {
+    int insertBatchSomeColumn(List<T> entityList);
+}
@@ -1,9 +1,8 @@
 package reggietakeout.mapper;
 
-import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import org.apache.ibatis.annotations.Mapper;
 import reggietakeout.entity.DishFlavor;
 
 @Mapper
-public interface DishFlavorMapper extends BaseMapper<DishFlavor> {
+public interface DishFlavorMapper extends BatchMapper<DishFlavor> {
 }
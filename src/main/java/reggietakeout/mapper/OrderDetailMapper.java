@@ -1,9 +1,8 @@
 package reggietakeout.mapper;
 
-import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import org.apache.ibatis.annotations.Mapper;
 import reggietakeout.entity.OrderDetail;
 
 @Mapper
-public interface OrderDetailMapper extends BaseMapper<OrderDetail> {
+public interface OrderDetailMapper extends BatchMapper<OrderDetail> {
 }
@@ -1,9 +1,32 @@
 package reggietakeout.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
-import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.*;
+import org.apache.ibatis.mapping.ResultSetType;
+import org.apache.ibatis.session.ResultHandler;
+import reggietakeout.dto.OrderExportDto;
 import reggietakeout.entity.Orders;
 
+import java.time.LocalDateTime;
+
 @Mapper
 public interface OrdersMapper extends BaseMapper<Orders> {
+    /**
+     * 以流式读取的方式查询下单时间范围内的订单及订单详情，每读到一行交给handler处理
+     * fetchSize为Integer.MIN_VALUE时MySQL驱动逐行从服务器读取结果，不在内存中缓存整个结果集
+     *
+     * @param beginTime 下单时间范围的开始时间（包含）
+     * @param endTime   下单时间范围的结束时间（不包含）
+     * @param handler   逐行处理查询结果的回调
+     */
+    @Select("SELECT o.number AS order_number, o.status, o.order_time, o.checkout_time, o.pay_method, o.amount AS order_amount, " +
+            "o.consignee, o.phone, o.address, d.name, d.dish_flavor, d.number, d.amount " +
+            "FROM orders o JOIN order_detail d ON d.order_id = o.id " +
+            "WHERE o.order_time >= #{beginTime} AND o.order_time < #{endTime} " +
+            "ORDER BY o.order_time, o.id")
+    @Options(resultSetType = ResultSetType.FORWARD_ONLY, fetchSize = Integer.MIN_VALUE)
+    @ResultType(OrderExportDto.class)
+    void exportOrders(@Param("beginTime") LocalDateTime beginTime,
+                      @Param("endTime") LocalDateTime endTime,
+                      ResultHandler<OrderExportDto> handler);
 }
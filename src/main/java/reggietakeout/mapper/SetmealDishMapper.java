@@ -1,9 +1,8 @@
 package reggietakeout.mapper;
 
-import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import org.apache.ibatis.annotations.Mapper;
 import reggietakeout.entity.SetmealDish;
 
 @Mapper
-public interface SetmealDishMapper extends BaseMapper<SetmealDish> {
+public interface SetmealDishMapper extends BatchMapper<SetmealDish> {
 }
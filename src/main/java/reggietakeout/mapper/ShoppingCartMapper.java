@@ -1,9 +1,56 @@
 package reggietakeout.mapper;
 
-import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Update;
 import reggietakeout.entity.ShoppingCart;
 
 @Mapper
-public interface ShoppingCartMapper extends BaseMapper<ShoppingCart> {
+public interface ShoppingCartMapper extends BatchMapper<ShoppingCart> {
+    /**
+     * 插入购物车项，同一用户的同一菜品口味或套餐已存在时在原数量上累加
+     * 依赖(user_id, item_key)唯一键，由数据库在一条语句中完成判断和累加，并发请求不会丢失数量或产生重复记录
+     *
+     * @param shoppingCart 购物车项，number为要增加的数量
+     * @return 返回受影响的行数，插入时为1，累加时为2
+     */
+    @Insert("INSERT INTO shopping_cart (id, name, image, user_id, dish_id, setmeal_id, dish_flavor, number, amount, create_time) " +
+            "VALUES (#{id}, #{name}, #{image}, #{userId}, #{dishId}, #{setmealId}, #{dishFlavor}, #{number}, #{amount}, #{createTime}) " +
+            "ON DUPLICATE KEY UPDATE number = number + #{number}")
+    int upsertIncrement(ShoppingCart shoppingCart);
+
+    /**
+     * 插入购物车项，已存在时将数量设置为给定值
+     *
+     * @param shoppingCart 购物车项，number为设置后的数量
+     * @return 返回受影响的行数
+     */
+    @Insert("INSERT INTO shopping_cart (id, name, image, user_id, dish_id, setmeal_id, dish_flavor, number, amount, create_time) " +
+            "VALUES (#{id}, #{name}, #{image}, #{userId}, #{dishId}, #{setmealId}, #{dishFlavor}, #{number}, #{amount}, #{createTime}) " +
+            "ON DUPLICATE KEY UPDATE number = #{number}")
+    int upsertNumber(ShoppingCart shoppingCart);
+
+    /**
+     * 将购物车项的数量减去给定值，最少减到0，未指定口味的菜品匹配任一口味
+     * 一条语句完成减购，不读取受影响的行数，可以在批处理中执行；减到0的记录不再被查询到，由deleteEmpty统一删除
+     *
+     * @param shoppingCart 购物车项，number为要减少的数量
+     * @return 返回受影响的行数
+     */
+    @Update("UPDATE shopping_cart SET number = GREATEST(number - #{number}, 0) " +
+            "WHERE user_id = #{userId} AND dish_id <=> #{dishId} AND setmeal_id <=> #{setmealId} " +
+            "AND (#{dishFlavor} IS NULL OR dish_flavor = #{dishFlavor}) AND number > 0 " +
+            "ORDER BY id LIMIT 1")
+    int subtract(ShoppingCart shoppingCart);
+
+    /**
+     * 删除用户购物车中数量不大于0的记录
+     *
+     * @param userId 用户ID
+     * @return 返回受影响的行数
+     */
+    @Delete("DELETE FROM shopping_cart WHERE user_id = #{userId} AND number <= 0")
+    int deleteEmpty(@Param("userId") Long userId);
 }
@@ -0,0 +1,17 @@
+package reggietakeout.mapper;
+
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+@Mapper
+public interface TableStatsMapper {
+    /**
+     * 从表统计信息中读取估算行数，不扫描表数据
+     *
+     * @param tableName 表名
+     * @return 返回估算行数，表不存在时返回null
+     */
+    @Select("SELECT TABLE_ROWS FROM information_schema.TABLES WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = #{tableName}")
+    Long selectEstimatedRows(@Param("tableName") String tableName);
+}
@@ -4,6 +4,7 @@ import com.baomidou.mybatisplus.extension.service.IService;
 import reggietakeout.dto.DishDto;
 import reggietakeout.entity.DishFlavor;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface DishFlavorService extends IService<DishFlavor> {
@@ -13,5 +14,7 @@ public interface DishFlavorService extends IService<DishFlavor> {
 
     List<DishFlavor> selectByDishId(Long dishId);
 
+    List<DishFlavor> selectByDishIds(Collection<Long> dishIds);
+
     void deleteByDishId(Long dishId);
 }
@@ -2,6 +2,7 @@ package reggietakeout.service;
 
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.IService;
+import reggietakeout.common.CursorPage;
 import reggietakeout.entity.Dish;
 
 import java.util.List;
@@ -9,9 +10,13 @@ import java.util.List;
 public interface DishService extends IService<Dish> {
     int getCountByCategoryId(Long categoryId);
 
-    Page selectPage(Page pageInfo, String name);
+    Page selectPage(Page pageInfo, String name, String countMode);
+
+    CursorPage<Dish> selectCursorPage(CursorPage<Dish> pageInfo, String name);
 
     Dish selectById(Long Id);
 
     List<Dish> selectByCategoryId(Long categoryId);
+
+    List<Dish> selectByStatus(Integer status);
 }
@@ -2,6 +2,7 @@ package reggietakeout.service;
 
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.IService;
+import reggietakeout.common.CursorPage;
 import reggietakeout.entity.Employee;
 
 public interface EmployeeService extends IService<Employee> {
@@ -9,5 +10,7 @@ public interface EmployeeService extends IService<Employee> {
 
     void insert(Employee employee);
 
-    Page selectPage(Page pageInfo, String name);
+    Page selectPage(Page pageInfo, String name, String countMode);
+
+    CursorPage<Employee> selectCursorPage(CursorPage<Employee> pageInfo, String name);
 }
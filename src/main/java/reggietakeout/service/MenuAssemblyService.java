@@ -0,0 +1,16 @@
+package reggietakeout.service;
+
+import reggietakeout.dto.DishDto;
+import reggietakeout.dto.SetmealDto;
+import reggietakeout.entity.Dish;
+import reggietakeout.entity.Setmeal;
+
+import java.util.List;
+
+public interface MenuAssemblyService {
+    List<DishDto> assembleDishes(List<Dish> dishes);
+
+    List<DishDto> assembleDishPage(List<Dish> dishes);
+
+    List<SetmealDto> assembleSetmealPage(List<Setmeal> setmeals);
+}
@@ -0,0 +1,13 @@
+package reggietakeout.service;
+
+import java.util.List;
+
+public interface MenuBulkService {
+    void updateDishStatus(List<Long> ids, Integer status);
+
+    void updateSetmealStatus(List<Long> ids, Integer status);
+
+    void deleteDishes(List<Long> ids);
+
+    void deleteSetmeals(List<Long> ids);
+}
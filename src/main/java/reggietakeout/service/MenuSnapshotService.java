@@ -0,0 +1,11 @@
+package reggietakeout.service;
+
+import reggietakeout.dto.MenuSnapshotDto;
+
+public interface MenuSnapshotService {
+    long currentVersion();
+
+    MenuSnapshotDto getSnapshot(long version);
+
+    void refresh();
+}
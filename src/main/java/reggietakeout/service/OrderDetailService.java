@@ -3,8 +3,11 @@ package reggietakeout.service;
 import com.baomidou.mybatisplus.extension.service.IService;
 import reggietakeout.entity.OrderDetail;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface OrderDetailService extends IService<OrderDetail> {
     List<OrderDetail> selectByOrderId(Long orderId);
+
+    List<OrderDetail> selectByOrderIds(Collection<Long> orderIds);
 }
@@ -0,0 +1,9 @@
+package reggietakeout.service;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.time.LocalDateTime;
+
+public interface OrderExportService {
+    long exportCsv(LocalDateTime beginTime, LocalDateTime endTime, Writer writer) throws IOException;
+}
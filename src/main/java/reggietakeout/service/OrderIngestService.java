@@ -0,0 +1,20 @@
+package reggietakeout.service;
+
+import reggietakeout.entity.Orders;
+
+public interface OrderIngestService {
+    // 已进入下单队列，等待写入数据库
+    String STATUS_QUEUED = "queued";
+    // 已写入数据库
+    String STATUS_COMMITTED = "committed";
+    // 写入数据库失败
+    String STATUS_FAILED = "failed";
+    // 没有该订单的记录
+    String STATUS_UNKNOWN = "unknown";
+
+    boolean isEnabled();
+
+    Long submit(Orders orders, Long userId);
+
+    String getStatus(Long orderId, Long userId);
+}
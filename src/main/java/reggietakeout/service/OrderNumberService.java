@@ -0,0 +1,5 @@
+package reggietakeout.service;
+
+public interface OrderNumberService {
+    String next();
+}
@@ -0,0 +1,18 @@
+package reggietakeout.service;
+
+import java.util.List;
+
+public interface OrderStatusService {
+    // 待付款
+    int PENDING_PAYMENT = 1;
+    // 待派送
+    int TO_DISPATCH = 2;
+    // 已派送
+    int DISPATCHED = 3;
+    // 已完成
+    int COMPLETED = 4;
+    // 已取消
+    int CANCELLED = 5;
+
+    List<Long> transition(List<Long> ids, Integer status);
+}
@@ -2,11 +2,29 @@ package reggietakeout.service;
 
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.IService;
+import reggietakeout.common.CursorPage;
+import reggietakeout.dto.OrdersQueryDto;
 import reggietakeout.entity.AddressBook;
+import reggietakeout.entity.OrderDetail;
 import reggietakeout.entity.Orders;
+import reggietakeout.entity.ShoppingCart;
+
+import java.util.List;
 
 public interface OrdersService extends IService<Orders> {
+    List<OrderDetail> priceOrders(Orders orders, List<ShoppingCart> shoppingCarts);
+
+    void prepareOrders(Orders orders, AddressBook addressBook, Long userId);
+
     Long insertOrders(Orders orders, AddressBook addressBook);
 
-    Page<Orders> selectPage(Page<Orders> pageInfo);
+    Page<Orders> selectPage(Page<Orders> pageInfo, String countMode);
+
+    CursorPage<Orders> selectCursorPage(CursorPage<Orders> pageInfo);
+
+    Page<Orders> selectAdminPage(Page<Orders> pageInfo, OrdersQueryDto query, String countMode);
+
+    CursorPage<Orders> selectAdminCursorPage(CursorPage<Orders> pageInfo, OrdersQueryDto query);
+
+    List<ShoppingCart> again(Long orderId, Long userId);
 }
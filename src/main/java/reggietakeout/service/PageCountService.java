@@ -0,0 +1,18 @@
+package reggietakeout.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.baomidou.mybatisplus.extension.service.IService;
+
+public interface PageCountService {
+    // 每次都执行COUNT查询
+    String MODE_EXACT = "exact";
+    // 短时间内复用相同条件的总数
+    String MODE_CACHED = "cached";
+    // 无过滤条件的大表直接使用表统计信息中的估算行数，其余情况与cached相同
+    String MODE_ESTIMATED = "estimated";
+    // 不统计总数
+    String MODE_NONE = "none";
+
+    <T> Page<T> page(IService<T> service, Page<T> pageInfo, LambdaQueryWrapper<T> queryWrapper, String countMode);
+}
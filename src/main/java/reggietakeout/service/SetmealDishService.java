@@ -4,10 +4,15 @@ import com.baomidou.mybatisplus.extension.service.IService;
 import reggietakeout.dto.SetmealDto;
 import reggietakeout.entity.SetmealDish;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface SetmealDishService extends IService<SetmealDish> {
     void insertSetmealDish(SetmealDto setmealDto);
 
+    void updateSetmealDish(SetmealDto setmealDto);
+
     List<SetmealDish> selectBySetmealId(Long setmealId);
+
+    List<SetmealDish> selectBySetmealIds(Collection<Long> setmealIds);
 }
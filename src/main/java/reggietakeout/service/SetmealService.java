@@ -2,6 +2,7 @@ package reggietakeout.service;
 
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.IService;
+import reggietakeout.common.CursorPage;
 import reggietakeout.dto.SetmealDto;
 import reggietakeout.entity.Setmeal;
 
@@ -12,7 +13,11 @@ public interface SetmealService extends IService<Setmeal> {
 
     Long insertSetmeal(SetmealDto setmealDto);
 
-    Page selectPage(Page pageInfo, String name);
+    Page selectPage(Page pageInfo, String name, String countMode);
+
+    CursorPage<Setmeal> selectCursorPage(CursorPage<Setmeal> pageInfo, String name);
 
     List<Setmeal> selectByCategoryId(Long categoryId, Integer status);
+
+    List<Setmeal> selectByStatus(Integer status);
 }
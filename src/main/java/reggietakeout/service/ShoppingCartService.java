@@ -1,6 +1,7 @@
 package reggietakeout.service;
 
 import com.baomidou.mybatisplus.extension.service.IService;
+import reggietakeout.dto.CartOperationDto;
 import reggietakeout.entity.ShoppingCart;
 
 import java.util.List;
@@ -8,9 +9,15 @@ import java.util.List;
 public interface ShoppingCartService extends IService<ShoppingCart> {
     void insertShoppingCart(ShoppingCart shoppingCart);
 
-    void deleteShoppingCart(Long dishId, Long setmealId, Long userId);
+    void deleteShoppingCart(Long dishId, Long setmealId, String dishFlavor, Long userId);
 
     void deleteByUserId(Long userId);
 
     List<ShoppingCart> selectByUserId(Long userId);
+
+    void removeOrdered(Long userId, List<ShoppingCart> ordered);
+
+    List<ShoppingCart> applyOperations(Long userId, List<CartOperationDto> operations);
+
+    List<ShoppingCart> replaceCart(Long userId, List<ShoppingCart> items);
 }
@@ -0,0 +1,59 @@
+package reggietakeout.service.impl;
+
+import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.transaction.annotation.Transactional;
+import reggietakeout.mapper.BatchMapper;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 使用多行INSERT实现批量保存的服务基类
+ * <p>
+ * MyBatis-Plus默认的saveBatch通过批处理执行器逐行执行INSERT，MySQL驱动未开启rewriteBatchedStatements时每行仍是一次往返；
+ * 这里按分块大小把记录拆分成若干条 INSERT ... VALUES (...),(...) 语句，每块只需一次往返
+ *
+ * @param <M> Mapper类型
+ * @param <T> 实体类型
+ */
+public class BatchServiceImpl<M extends BatchMapper<T>, T> extends ServiceImpl<M, T> {
+    // 每条多行INSERT语句包含的最大记录数，避免单条语句超过max_allowed_packet
+    @Value("${reggie.batch.insert-chunk-size:500}")
+    private int insertChunkSize;
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public boolean saveBatch(Collection<T> entityList) {
+        return saveBatch(entityList, insertChunkSize);
+    }
+
+    /**
+     * 按分块大小使用多行INSERT批量保存记录
+     *
+     * @param entityList 要保存的记录
+     * @param batchSize  每条INSERT语句包含的最大记录数
+     * @return 全部记录保存成功时返回true
+     */
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public boolean saveBatch(Collection<T> entityList, int batchSize) {
+        if (entityList == null || entityList.isEmpty())
+            return false;
+
+        List<T> chunk = new ArrayList<>(Math.min(batchSize, entityList.size()));
+        int inserted = 0;
+        for (T entity : entityList) {
+            chunk.add(entity);
+            if (chunk.size() == batchSize) {
+                inserted += baseMapper.insertBatchSomeColumn(chunk);
+                chunk = new ArrayList<>(batchSize);
+            }
+        }
+        if (!chunk.isEmpty())
+            inserted += baseMapper.insertBatchSomeColumn(chunk);
+
+        return inserted == entityList.size();
+    }
+}
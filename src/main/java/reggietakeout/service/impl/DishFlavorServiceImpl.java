@@ -1,17 +1,16 @@
 package reggietakeout.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
-import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import org.springframework.stereotype.Service;
 import reggietakeout.dto.DishDto;
 import reggietakeout.entity.DishFlavor;
 import reggietakeout.mapper.DishFlavorMapper;
 import reggietakeout.service.DishFlavorService;
 
-import java.util.List;
+import java.util.*;
 
 @Service
-public class DishFlavorServiceImpl extends ServiceImpl<DishFlavorMapper, DishFlavor> implements DishFlavorService {
+public class DishFlavorServiceImpl extends BatchServiceImpl<DishFlavorMapper, DishFlavor> implements DishFlavorService {
     /**
      * 重写插入方法，用于处理菜肴及其风味的批量保存
      *
@@ -33,22 +32,60 @@ public class DishFlavorServiceImpl extends ServiceImpl<DishFlavorMapper, DishFla
 
     /**
      * 更新菜品口味信息
-     * 此方法首先根据菜品ID删除现有的口味信息，然后插入新的口味信息
+     * <p>
+     * 以口味名称为键，将传入的口味与数据库中已有的口味逐一比较，只对发生变化的口味执行写操作：
+     * 新出现的口味批量插入，取值变化的口味批量更新，不再存在的口味用一条IN语句删除
+     * 口味没有变化时除了读取已有口味的一次查询外不产生任何写操作，也不会生成新的口味ID
      *
      * @param dishDto 包含菜品及其新口味信息的传输对象
      */
     @Override
     public void updateDishFlavor(DishDto dishDto) {
-        // 创建查询包装器，用于后续的条件查询
-        LambdaQueryWrapper<DishFlavor> queryWrapper = new LambdaQueryWrapper<>();
-        // 设置查询条件：根据菜品ID匹配
-        queryWrapper.eq(DishFlavor::getDishId, dishDto.getId());
+        Long dishId = dishDto.getId();
 
-        // 删除现有口味信息，为插入新信息做准备
-        remove(queryWrapper);
+        // 读取菜品现有的口味，并按口味名称建立索引；同名的重复记录只保留第一条参与比较，其余直接删除
+        Map<String, DishFlavor> stored = new LinkedHashMap<>();
+        List<Long> deletes = new ArrayList<>();
+        for (DishFlavor flavor : selectByDishId(dishId))
+            if (stored.putIfAbsent(flavor.getName(), flavor) != null)
+                deletes.add(flavor.getId());
+
+        // 传入的口味按名称去重，同名口味以最后一个为准
+        Map<String, DishFlavor> incoming = new LinkedHashMap<>();
+        if (dishDto.getFlavors() != null)
+            dishDto.getFlavors().forEach(flavor -> incoming.put(flavor.getName(), flavor));
+
+        List<DishFlavor> inserts = new ArrayList<>();
+        List<DishFlavor> updates = new ArrayList<>();
+        incoming.forEach((name, flavor) -> {
+            DishFlavor existing = stored.remove(name);
 
-        // 插入新的口味信息
-        insert(dishDto);
+            // 新出现的口味，清空前端可能携带的ID，由数据库重新生成
+            if (existing == null) {
+                flavor.setId(null);
+                flavor.setDishId(dishId);
+                inserts.add(flavor);
+                return;
+            }
+
+            // 口味取值发生变化时只更新取值
+            if (!Objects.equals(existing.getValue(), flavor.getValue())) {
+                DishFlavor update = new DishFlavor();
+                update.setId(existing.getId());
+                update.setValue(flavor.getValue());
+                updates.add(update);
+            }
+        });
+
+        // 剩余的已有口味在传入的口味中已不存在，需要删除
+        stored.values().forEach(flavor -> deletes.add(flavor.getId()));
+
+        if (!inserts.isEmpty())
+            saveBatch(inserts);
+        if (!updates.isEmpty())
+            updateBatchById(updates);
+        if (!deletes.isEmpty())
+            removeByIds(deletes);
     }
 
     /**
@@ -70,6 +107,29 @@ public class DishFlavorServiceImpl extends ServiceImpl<DishFlavorMapper, DishFla
         return list(queryWrapper);
     }
 
+    /**
+     * 根据一组菜品ID批量查询口味信息
+     * <p>
+     * 使用一条IN查询取回所有菜品的口味，由调用方在内存中按菜品ID分组，
+     * 避免逐个菜品查询口味带来的N+1问题
+     *
+     * @param dishIds 菜品ID集合
+     * @return 返回这些菜品关联的全部口味信息，集合为空时返回空列表
+     */
+    @Override
+    public List<DishFlavor> selectByDishIds(Collection<Long> dishIds) {
+        // 菜品ID为空时无需查询，直接返回空列表，避免生成非法的 IN () 语句
+        if (dishIds == null || dishIds.isEmpty())
+            return new ArrayList<>();
+
+        // 创建Lambda查询构造器，并设置查询条件为菜品ID在给定集合中
+        LambdaQueryWrapper<DishFlavor> queryWrapper = new LambdaQueryWrapper<>();
+        queryWrapper.in(DishFlavor::getDishId, dishIds);
+
+        // 执行查询并返回结果列表
+        return list(queryWrapper);
+    }
+
     /**
      * 根据菜品ID删除对应的菜品口味
      *
@@ -4,15 +4,21 @@ import ch.qos.logback.core.util.StringUtil;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import reggietakeout.common.CursorPage;
 import reggietakeout.entity.Dish;
 import reggietakeout.mapper.DishMapper;
 import reggietakeout.service.DishService;
+import reggietakeout.service.PageCountService;
 
 import java.util.List;
 
 @Service
 public class DishServiceImpl extends ServiceImpl<DishMapper, Dish> implements DishService {
+    @Autowired
+    private PageCountService pageCountService;
+
     /**
      * 根据类别ID获取菜品数量
      * <p>
@@ -38,23 +44,44 @@ public class DishServiceImpl extends ServiceImpl<DishMapper, Dish> implements Di
      *
      * @param pageInfo 分页信息，包含页码、页大小等
      * @param name     菜品名称，用于模糊查询
+     * @param countMode 总数统计方式：exact、cached、estimated或none，为空时使用配置的默认方式
      * @return 返回填充了查询结果的分页信息对象
      */
     @Override
-    public Page selectPage(Page pageInfo, String name) {
+    public Page selectPage(Page pageInfo, String name, String countMode) {
         // 创建Lambda查询包装器，用于后续的条件查询
         LambdaQueryWrapper<Dish> queryWrapper = new LambdaQueryWrapper<>();
 
         // 根据菜品名称进行模糊查询，仅当名称不为空且不只包含空格时执行查询
         queryWrapper.like(StringUtil.notNullNorEmpty(name), Dish::getName, name);
 
-        // 执行分页查询，结果填充到pageInfo中
-        page(pageInfo, queryWrapper);
+        // 按指定的总数统计方式执行分页查询，结果填充到pageInfo中
+        pageCountService.page(this, pageInfo, queryWrapper, countMode);
 
         // 返回填充了查询结果的分页信息对象
         return pageInfo;
     }
 
+    /**
+     * 按更新时间和ID降序进行游标分页查询
+     * <p>
+     * 从上一页最后一条记录之后开始读取，不执行COUNT查询，查询耗时与翻页深度无关
+     *
+     * @param pageInfo 游标分页信息，包含上一页的游标和每页记录数
+     * @param name     菜品名称，用于模糊查询
+     * @return 返回填充了当前页记录和下一页游标的分页对象
+     */
+    @Override
+    public CursorPage<Dish> selectCursorPage(CursorPage<Dish> pageInfo, String name) {
+        LambdaQueryWrapper<Dish> queryWrapper = new LambdaQueryWrapper<>();
+        // 名称不为空时按名称模糊查询
+        queryWrapper.like(StringUtil.notNullNorEmpty(name), Dish::getName, name);
+
+        // 添加游标定位条件后查询，并生成下一页的游标
+        List<Dish> dishes = list(pageInfo.seek(queryWrapper, Dish::getUpdateTime, Dish::getId));
+        return pageInfo.fill(dishes, Dish::getUpdateTime, Dish::getId);
+    }
+
     /**
      * 根据菜品ID选择菜品信息
      *
@@ -88,4 +115,21 @@ public class DishServiceImpl extends ServiceImpl<DishMapper, Dish> implements Di
         // 执行查询并返回结果列表
         return list(queryWrapper);
     }
+
+    /**
+     * 根据状态查询所有菜品，并按排序字段升序排列
+     *
+     * @param status 菜品状态，0为停售，1为起售
+     * @return 返回符合条件的菜品列表
+     */
+    @Override
+    public List<Dish> selectByStatus(Integer status) {
+        // 创建Lambda查询包装器，设置查询条件为状态等于传入的status，并按排序字段升序排列
+        LambdaQueryWrapper<Dish> queryWrapper = new LambdaQueryWrapper<>();
+        queryWrapper.eq(Dish::getStatus, status)
+                .orderByAsc(Dish::getSort);
+
+        // 执行查询并返回结果列表
+        return list(queryWrapper);
+    }
 }
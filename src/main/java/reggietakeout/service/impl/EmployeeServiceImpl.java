@@ -4,15 +4,23 @@ import ch.qos.logback.core.util.StringUtil;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.util.DigestUtils;
+import reggietakeout.common.CursorPage;
 import reggietakeout.entity.Employee;
 import reggietakeout.exception.CustomException;
 import reggietakeout.mapper.EmployeeMapper;
 import reggietakeout.service.EmployeeService;
+import reggietakeout.service.PageCountService;
+
+import java.util.List;
 
 @Service
 public class EmployeeServiceImpl extends ServiceImpl<EmployeeMapper, Employee> implements EmployeeService {
+    @Autowired
+    private PageCountService pageCountService;
+
     /**
      * 根据用户名选择员工信息
      *
@@ -63,10 +71,11 @@ public class EmployeeServiceImpl extends ServiceImpl<EmployeeMapper, Employee> i
      *
      * @param pageInfo 分页信息，包含当前页码、每页大小等信息
      * @param name     员工姓名，用于模糊查询
+     * @param countMode 总数统计方式：exact、cached、estimated或none，为空时使用配置的默认方式
      * @return 返回填充了查询结果的分页信息对象
      */
     @Override
-    public Page selectPage(Page pageInfo, String name) {
+    public Page selectPage(Page pageInfo, String name, String countMode) {
         // 创建Lambda查询包装器，用于构造查询条件
         LambdaQueryWrapper<Employee> queryWrapper = new LambdaQueryWrapper<>();
 
@@ -76,10 +85,30 @@ public class EmployeeServiceImpl extends ServiceImpl<EmployeeMapper, Employee> i
         queryWrapper.like(StringUtil.notNullNorEmpty(name), Employee::getName, name)
                 .orderByDesc(Employee::getUpdateTime);  // 添加按照更新时间降序排序的条件
 
-        // 执行分页查询，传入分页信息和查询条件
-        page(pageInfo, queryWrapper);
+        // 按指定的总数统计方式执行分页查询，结果填充到pageInfo中
+        pageCountService.page(this, pageInfo, queryWrapper, countMode);
 
         // 返回填充了查询结果的分页信息对象
         return pageInfo;
     }
+
+    /**
+     * 按更新时间和ID降序进行游标分页查询
+     * <p>
+     * 从上一页最后一条记录之后开始读取，不执行COUNT查询，查询耗时与翻页深度无关
+     *
+     * @param pageInfo 游标分页信息，包含上一页的游标和每页记录数
+     * @param name     员工姓名，用于模糊查询
+     * @return 返回填充了当前页记录和下一页游标的分页对象
+     */
+    @Override
+    public CursorPage<Employee> selectCursorPage(CursorPage<Employee> pageInfo, String name) {
+        LambdaQueryWrapper<Employee> queryWrapper = new LambdaQueryWrapper<>();
+        // 姓名不为空时按姓名模糊查询
+        queryWrapper.like(StringUtil.notNullNorEmpty(name), Employee::getName, name);
+
+        // 添加游标定位条件后查询，并生成下一页的游标
+        List<Employee> employees = list(pageInfo.seek(queryWrapper, Employee::getUpdateTime, Employee::getId));
+        return pageInfo.fill(employees, Employee::getUpdateTime, Employee::getId);
+    }
 }
@@ -0,0 +1,117 @@
+package reggietakeout.service.impl;
+
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import reggietakeout.cache.CategoryDictionary;
+import reggietakeout.dto.DishDto;
+import reggietakeout.dto.SetmealDto;
+import reggietakeout.entity.*;
+import reggietakeout.service.DishFlavorService;
+import reggietakeout.service.MenuAssemblyService;
+import reggietakeout.service.SetmealDishService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+@Service
+public class MenuAssemblyServiceImpl implements MenuAssemblyService {
+    @Autowired
+    private DishFlavorService dishFlavorService;
+    @Autowired
+    private SetmealDishService setmealDishService;
+    @Autowired
+    private CategoryDictionary categoryDictionary;
+
+    /**
+     * 将菜品列表组装为带口味信息的菜品DTO列表
+     * <p>
+     * 所有菜品的口味通过一条IN查询批量取回，再在内存中按菜品ID分组，
+     * 无论菜品数量多少，口味查询都只有一次
+     *
+     * @param dishes 菜品列表
+     * @return 返回带口味信息的菜品DTO列表，顺序与传入的菜品列表一致
+     */
+    @Override
+    public List<DishDto> assembleDishes(List<Dish> dishes) {
+        // 菜品为空时无需组装
+        if (dishes.isEmpty())
+            return new ArrayList<>();
+
+        // 一次性查询所有菜品的口味，并按菜品ID分组
+        List<Long> dishIds = dishes.stream().map(Dish::getId).toList();
+        Map<Long, List<DishFlavor>> flavorMap = dishFlavorService.selectByDishIds(dishIds).stream()
+                .collect(Collectors.groupingBy(DishFlavor::getDishId));
+
+        return dishes.stream()
+                .map(dish -> {
+                    // 创建菜品DTO，并复制菜品的基本信息
+                    DishDto dishDto = new DishDto();
+                    BeanUtils.copyProperties(dish, dishDto);
+
+                    // 从分组结果中取出该菜品的口味，没有口味时使用空列表
+                    dishDto.setFlavors(flavorMap.getOrDefault(dish.getId(), new ArrayList<>()));
+
+                    return dishDto;
+                })
+                .toList();
+    }
+
+    /**
+     * 将分页查询到的菜品组装为带分类名称的菜品DTO列表
+     * 分类名称从内存中的分类字典获取，不产生额外的数据库查询
+     *
+     * @param dishes 当前页的菜品列表
+     * @return 返回带分类名称的菜品DTO列表
+     */
+    @Override
+    public List<DishDto> assembleDishPage(List<Dish> dishes) {
+        return dishes.stream()
+                .map(dish -> {
+                    DishDto dishDto = new DishDto();
+                    // 复制Dish对象的属性到DishDto对象
+                    BeanUtils.copyProperties(dish, dishDto);
+                    // 从内存中的分类字典获取菜品分类名称，无需查询数据库
+                    dishDto.setCategoryName(categoryDictionary.getName(dish.getCategoryId()));
+
+                    return dishDto;
+                })
+                .toList();
+    }
+
+    /**
+     * 将分页查询到的套餐组装为带套餐菜品和分类名称的套餐DTO列表
+     * <p>
+     * 套餐菜品用一条IN查询批量取回，分类名称从内存中的分类字典获取，查询次数与当前页的套餐数量无关
+     *
+     * @param setmeals 当前页的套餐列表
+     * @return 返回带套餐菜品和分类名称的套餐DTO列表
+     */
+    @Override
+    public List<SetmealDto> assembleSetmealPage(List<Setmeal> setmeals) {
+        // 套餐为空时无需组装
+        if (setmeals.isEmpty())
+            return new ArrayList<>();
+
+        // 一次性查询当前页所有套餐的菜品，并按套餐ID分组
+        List<Long> setmealIds = setmeals.stream().map(Setmeal::getId).toList();
+        Map<Long, List<SetmealDish>> setmealDishMap = setmealDishService.selectBySetmealIds(setmealIds).stream()
+                .collect(Collectors.groupingBy(SetmealDish::getSetmealId));
+
+        return setmeals.stream()
+                .map(setmeal -> {
+                    SetmealDto setmealDto = new SetmealDto();
+                    // 复制套餐基本信息到DTO
+                    BeanUtils.copyProperties(setmeal, setmealDto);
+
+                    // 设置套餐菜品信息和分类名称
+                    setmealDto.setSetmealDishes(setmealDishMap.getOrDefault(setmeal.getId(), new ArrayList<>()));
+                    setmealDto.setCategoryName(categoryDictionary.getName(setmeal.getCategoryId()));
+
+                    return setmealDto;
+                })
+                .toList();
+    }
+}
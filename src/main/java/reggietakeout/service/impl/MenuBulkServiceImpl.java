@@ -0,0 +1,175 @@
+package reggietakeout.service.impl;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import reggietakeout.cache.CacheInvalidator;
+import reggietakeout.cache.MenuCache;
+import reggietakeout.entity.Dish;
+import reggietakeout.entity.DishFlavor;
+import reggietakeout.entity.Setmeal;
+import reggietakeout.entity.SetmealDish;
+import reggietakeout.exception.CustomException;
+import reggietakeout.service.*;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+@Service
+@Slf4j
+public class MenuBulkServiceImpl implements MenuBulkService {
+    @Autowired
+    private CacheInvalidator cacheInvalidator;
+    @Autowired
+    private DishService dishService;
+    @Autowired
+    private DishFlavorService dishFlavorService;
+    @Autowired
+    private SetmealService setmealService;
+    @Autowired
+    private SetmealDishService setmealDishService;
+
+    /**
+     * 批量修改菜品的售卖状态
+     * <p>
+     * 先用一条查询找出受影响的分类，再用一条UPDATE语句修改全部菜品的状态，语句数量与菜品数量无关
+     * 事务提交后只删除受影响分类的菜品缓存（延迟双删），其他分类的缓存不受影响
+     *
+     * @param ids    要修改状态的菜品ID列表
+     * @param status 新的售卖状态，0停售，1起售
+     */
+    @Override
+    @Transactional
+    public void updateDishStatus(List<Long> ids, Integer status) {
+        if (ids.isEmpty())
+            return;
+
+        // 查询这些菜品所属的分类，用于之后精确删除缓存
+        List<Long> categoryIds = dishService.listObjs(
+                new LambdaQueryWrapper<Dish>()
+                        .select(Dish::getCategoryId)
+                        .in(Dish::getId, ids)
+                        .groupBy(Dish::getCategoryId),
+                categoryId -> (Long) categoryId);
+
+        // 使用一条UPDATE语句修改所有菜品的状态，通过实体对象设置新状态以便自动填充更新时间和更新人
+        Dish dish = new Dish();
+        dish.setStatus(status);
+        dishService.update(dish, new LambdaUpdateWrapper<Dish>().in(Dish::getId, ids));
+        log.info("批量修改菜品状态为{}，菜品数量：{}，涉及分类：{}", status, ids.size(), categoryIds);
+
+        // 事务提交后删除受影响分类下两种状态的菜品缓存
+        cacheInvalidator.invalidate(categoryIds.stream()
+                .flatMap(categoryId -> Stream.of(MenuCache.dishKey(categoryId, 0), MenuCache.dishKey(categoryId, 1)))
+                .toList());
+    }
+
+    /**
+     * 批量修改套餐的售卖状态
+     * <p>
+     * 先用一条查询找出受影响的分类，再用一条UPDATE语句修改全部套餐的状态，语句数量与套餐数量无关
+     * 事务提交后只删除受影响分类的套餐缓存（延迟双删），其他分类的缓存不受影响
+     *
+     * @param ids    要修改状态的套餐ID列表
+     * @param status 新的售卖状态，0停售，1起售
+     */
+    @Override
+    @Transactional
+    public void updateSetmealStatus(List<Long> ids, Integer status) {
+        if (ids.isEmpty())
+            return;
+
+        // 查询这些套餐所属的分类，用于之后精确删除缓存
+        List<Long> categoryIds = setmealService.listObjs(
+                new LambdaQueryWrapper<Setmeal>()
+                        .select(Setmeal::getCategoryId)
+                        .in(Setmeal::getId, ids)
+                        .groupBy(Setmeal::getCategoryId),
+                categoryId -> (Long) categoryId);
+
+        // 使用一条UPDATE语句修改所有套餐的状态，通过实体对象设置新状态以便自动填充更新时间和更新人
+        Setmeal setmeal = new Setmeal();
+        setmeal.setStatus(status);
+        setmealService.update(setmeal, new LambdaUpdateWrapper<Setmeal>().in(Setmeal::getId, ids));
+        log.info("批量修改套餐状态为{}，套餐数量：{}，涉及分类：{}", status, ids.size(), categoryIds);
+
+        // 事务提交后删除受影响分类下两种状态的套餐缓存
+        cacheInvalidator.invalidate(categoryIds.stream()
+                .flatMap(categoryId -> Stream.of(MenuCache.setmealKey(categoryId, 0), MenuCache.setmealKey(categoryId, 1)))
+                .toList());
+    }
+
+    /**
+     * 批量删除菜品及其口味
+     * <p>
+     * 先用一条查询找出受影响的分类，再分别用一条IN语句删除口味和菜品，语句数量与菜品数量无关
+     * 事务提交后只删除受影响分类的菜品缓存（延迟双删）
+     *
+     * @param ids 要删除的菜品ID列表
+     */
+    @Override
+    @Transactional
+    public void deleteDishes(List<Long> ids) {
+        if (ids.isEmpty())
+            return;
+
+        // 查询这些菜品所属的分类，用于之后精确删除缓存
+        List<Long> categoryIds = dishService.listObjs(
+                new LambdaQueryWrapper<Dish>()
+                        .select(Dish::getCategoryId)
+                        .in(Dish::getId, ids)
+                        .groupBy(Dish::getCategoryId),
+                categoryId -> (Long) categoryId);
+
+        // 先删除口味，再删除菜品，各一条IN语句
+        dishFlavorService.remove(new LambdaQueryWrapper<DishFlavor>().in(DishFlavor::getDishId, ids));
+        dishService.remove(new LambdaQueryWrapper<Dish>().in(Dish::getId, ids));
+        log.info("批量删除菜品，菜品数量：{}，涉及分类：{}", ids.size(), categoryIds);
+
+        // 事务提交后删除受影响分类下两种状态的菜品缓存
+        cacheInvalidator.invalidate(categoryIds.stream()
+                .flatMap(categoryId -> Stream.of(MenuCache.dishKey(categoryId, 0), MenuCache.dishKey(categoryId, 1)))
+                .toList());
+    }
+
+    /**
+     * 批量删除套餐及其菜品关联数据
+     * <p>
+     * 用一条查询同时取回套餐的状态和所属分类，任一套餐正在售卖时拒绝删除，
+     * 校验通过后分别用一条IN语句删除套餐菜品和套餐，语句数量与套餐数量无关
+     * 事务提交后只删除受影响分类的套餐缓存（延迟双删）
+     *
+     * @param ids 要删除的套餐ID列表
+     */
+    @Override
+    @Transactional
+    public void deleteSetmeals(List<Long> ids) {
+        if (ids.isEmpty())
+            return;
+
+        // 一次性查询所有套餐的状态和分类
+        List<Setmeal> setmeals = setmealService.list(
+                new LambdaQueryWrapper<Setmeal>()
+                        .select(Setmeal::getId, Setmeal::getCategoryId, Setmeal::getStatus)
+                        .in(Setmeal::getId, ids));
+
+        // 存在正在售卖的套餐时不能删除
+        if (setmeals.stream().anyMatch(setmeal -> Integer.valueOf(1).equals(setmeal.getStatus())))
+            throw new CustomException("套餐正在售卖中，不能删除");
+
+        // 先删除套餐菜品，再删除套餐，各一条IN语句
+        setmealDishService.remove(new LambdaQueryWrapper<SetmealDish>().in(SetmealDish::getSetmealId, ids));
+        setmealService.remove(new LambdaQueryWrapper<Setmeal>().in(Setmeal::getId, ids));
+        log.info("批量删除套餐，套餐数量：{}", ids.size());
+
+        // 事务提交后删除受影响分类下两种状态的套餐缓存
+        cacheInvalidator.invalidate(setmeals.stream()
+                .map(Setmeal::getCategoryId)
+                .distinct()
+                .flatMap(categoryId -> Stream.of(MenuCache.setmealKey(categoryId, 0), MenuCache.setmealKey(categoryId, 1)))
+                .toList());
+    }
+}
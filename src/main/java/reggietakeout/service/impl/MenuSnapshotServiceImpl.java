@@ -0,0 +1,139 @@
+package reggietakeout.service.impl;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import reggietakeout.dto.CategoryMenuDto;
+import reggietakeout.dto.DishDto;
+import reggietakeout.dto.MenuSnapshotDto;
+import reggietakeout.entity.Category;
+import reggietakeout.entity.Setmeal;
+import reggietakeout.service.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+@Service
+@Slf4j
+public class MenuSnapshotServiceImpl implements MenuSnapshotService {
+    // Redis中保存菜单版本号的键，所有节点共享
+    public static final String VERSION_KEY = "menu_version";
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+    @Autowired
+    private CategoryService categoryService;
+    @Autowired
+    private DishService dishService;
+    @Autowired
+    private SetmealService setmealService;
+    @Autowired
+    private MenuAssemblyService menuAssemblyService;
+
+    // 本节点当前持有的菜单快照
+    private volatile MenuSnapshotDto snapshot;
+
+    /**
+     * 获取当前的菜单版本号
+     *
+     * @return 返回Redis中记录的菜单版本号，尚未有任何修改时为0
+     */
+    @Override
+    public long currentVersion() {
+        String version = stringRedisTemplate.opsForValue().get(VERSION_KEY);
+        return version == null ? 0L : Long.parseLong(version);
+    }
+
+    /**
+     * 获取指定版本的菜单快照
+     * <p>
+     * 本节点持有的快照版本与传入版本一致时直接返回，否则重新构建快照
+     * 构建只在菜单数据变更后的第一次请求时发生，其余请求都直接复用已构建好的快照
+     *
+     * @param version 菜单版本号
+     * @return 返回对应版本的菜单快照
+     */
+    @Override
+    public MenuSnapshotDto getSnapshot(long version) {
+        MenuSnapshotDto current = snapshot;
+        if (current != null && current.getVersion() == version)
+            return current;
+
+        synchronized (this) {
+            // 再次检查，避免并发请求重复构建同一版本的快照
+            current = snapshot;
+            if (current != null && current.getVersion() == version)
+                return current;
+
+            log.info("重新构建菜单快照，版本：{}", version);
+            snapshot = build(version);
+            return snapshot;
+        }
+    }
+
+    /**
+     * 菜单数据发生变更后递增菜单版本号，各节点在下一次请求时重新构建快照
+     * 处于事务中时，在事务提交后再递增版本号，避免其他节点读到未提交的数据
+     */
+    @Override
+    public void refresh() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    stringRedisTemplate.opsForValue().increment(VERSION_KEY);
+                }
+            });
+        } else {
+            stringRedisTemplate.opsForValue().increment(VERSION_KEY);
+        }
+    }
+
+    /**
+     * 构建完整的在售菜单
+     * 分类、在售菜品、菜品口味、在售套餐各查询一次，查询次数与菜单规模无关
+     *
+     * @param version 菜单版本号
+     * @return 返回构建好的菜单快照
+     */
+    private MenuSnapshotDto build(long version) {
+        // 查询所有分类，按类型和排序字段排列
+        LambdaQueryWrapper<Category> queryWrapper = new LambdaQueryWrapper<>();
+        queryWrapper.orderByAsc(Category::getType)
+                .orderByAsc(Category::getSort);
+        List<Category> categories = categoryService.list(queryWrapper);
+
+        // 查询所有在售菜品及其口味，并按分类分组
+        Map<Long, List<DishDto>> dishMap = menuAssemblyService.assembleDishes(dishService.selectByStatus(1)).stream()
+                .collect(Collectors.groupingBy(DishDto::getCategoryId));
+
+        // 查询所有在售套餐，并按分类分组
+        Map<Long, List<Setmeal>> setmealMap = setmealService.selectByStatus(1).stream()
+                .collect(Collectors.groupingBy(Setmeal::getCategoryId));
+
+        // 将菜品和套餐挂到各自的分类下
+        List<CategoryMenuDto> categoryMenus = categories.stream()
+                .map(category -> {
+                    CategoryMenuDto categoryMenuDto = new CategoryMenuDto();
+                    BeanUtils.copyProperties(category, categoryMenuDto);
+
+                    categoryMenuDto.setDishes(dishMap.getOrDefault(category.getId(), new ArrayList<>()));
+                    categoryMenuDto.setSetmeals(setmealMap.getOrDefault(category.getId(), new ArrayList<>()));
+
+                    return categoryMenuDto;
+                })
+                .toList();
+
+        MenuSnapshotDto menuSnapshotDto = new MenuSnapshotDto();
+        menuSnapshotDto.setVersion(version);
+        menuSnapshotDto.setCategories(categoryMenus);
+        return menuSnapshotDto;
+    }
+}
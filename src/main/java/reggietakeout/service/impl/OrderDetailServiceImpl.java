@@ -1,16 +1,17 @@
 package reggietakeout.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
-import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import org.springframework.stereotype.Service;
 import reggietakeout.entity.OrderDetail;
 import reggietakeout.mapper.OrderDetailMapper;
 import reggietakeout.service.OrderDetailService;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 @Service
-public class OrderDetailServiceImpl extends ServiceImpl<OrderDetailMapper, OrderDetail> implements OrderDetailService {
+public class OrderDetailServiceImpl extends BatchServiceImpl<OrderDetailMapper, OrderDetail> implements OrderDetailService {
     /**
      * 根据订单ID选择订单详情
      *
@@ -27,4 +28,27 @@ public class OrderDetailServiceImpl extends ServiceImpl<OrderDetailMapper, Order
         // 执行查询并返回结果列表
         return list(queryWrapper);
     }
+
+    /**
+     * 根据一组订单ID批量查询订单详情
+     * <p>
+     * 使用一条IN查询取回所有订单的详情，由调用方在内存中按订单ID分组，
+     * 避免逐个订单查询详情带来的N+1问题
+     *
+     * @param orderIds 订单ID集合
+     * @return 返回这些订单的全部订单详情，集合为空时返回空列表
+     */
+    @Override
+    public List<OrderDetail> selectByOrderIds(Collection<Long> orderIds) {
+        // 订单ID为空时无需查询，直接返回空列表，避免生成非法的 IN () 语句
+        if (orderIds == null || orderIds.isEmpty())
+            return new ArrayList<>();
+
+        // 创建Lambda查询构造器，并设置查询条件为订单ID在给定集合中
+        LambdaQueryWrapper<OrderDetail> queryWrapper = new LambdaQueryWrapper<>();
+        queryWrapper.in(OrderDetail::getOrderId, orderIds);
+
+        // 执行查询并返回结果列表
+        return list(queryWrapper);
+    }
 }
@@ -0,0 +1,113 @@
+package reggietakeout.service.impl;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import reggietakeout.dto.OrderExportDto;
+import reggietakeout.exception.CustomException;
+import reggietakeout.mapper.OrdersMapper;
+import reggietakeout.service.OrderExportService;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Objects;
+
+/**
+ * 订单CSV导出服务
+ * <p>
+ * 通过流式查询逐行读取订单和订单详情，每读到一行立即写入输出流，
+ * 任意时刻内存中只保留一行数据，堆内存占用与导出的数据量无关
+ */
+@Service
+public class OrderExportServiceImpl implements OrderExportService {
+    private static final String HEADER = "订单号,状态,下单时间,结账时间,支付方式,实收金额,收货人,手机号,地址,名称,口味,数量,单价\n";
+    private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    @Autowired
+    private OrdersMapper ordersMapper;
+
+    /**
+     * 将下单时间范围内的订单及订单详情以CSV格式写入输出流，每个订单详情一行
+     *
+     * @param beginTime 下单时间范围的开始时间（包含）
+     * @param endTime   下单时间范围的结束时间（不包含）
+     * @param writer    CSV输出流，由调用方负责缓冲和关闭
+     * @return 返回导出的行数，不包括表头
+     * @throws IOException 写入输出流失败时抛出
+     */
+    @Override
+    public long exportCsv(LocalDateTime beginTime, LocalDateTime endTime, Writer writer) throws IOException {
+        if (beginTime == null || endTime == null || !beginTime.isBefore(endTime))
+            throw new CustomException("导出时间范围无效");
+
+        writer.write(HEADER);
+
+        long[] rows = {0};
+        IOException[] failure = {null};
+        StringBuilder line = new StringBuilder(256);
+        ordersMapper.exportOrders(beginTime, endTime, context -> {
+            OrderExportDto row = context.getResultObject();
+            line.setLength(0);
+            append(line, row.getOrderNumber()).append(',');
+            append(line, row.getStatus()).append(',');
+            append(line, format(row.getOrderTime())).append(',');
+            append(line, format(row.getCheckoutTime())).append(',');
+            append(line, row.getPayMethod()).append(',');
+            append(line, row.getOrderAmount()).append(',');
+            appendText(line, row.getConsignee()).append(',');
+            appendText(line, row.getPhone()).append(',');
+            appendText(line, row.getAddress()).append(',');
+            appendText(line, row.getName()).append(',');
+            appendText(line, row.getDishFlavor()).append(',');
+            append(line, row.getNumber()).append(',');
+            append(line, row.getAmount()).append('\n');
+
+            // 写入失败（例如客户端断开连接）时停止读取剩余的结果
+            try {
+                writer.append(line);
+                rows[0]++;
+            } catch (IOException e) {
+                failure[0] = e;
+                context.stop();
+            }
+        });
+        if (failure[0] != null)
+            throw failure[0];
+
+        writer.flush();
+        return rows[0];
+    }
+
+    /**
+     * 追加一个CSV字段，包含逗号、引号或换行的字段用引号包围，字段中的引号转义为两个引号
+     *
+     * @param line  当前行
+     * @param value 字段值，null时输出空字段
+     * @return 返回当前行
+     */
+    private StringBuilder append(StringBuilder line, Object value) {
+        String text = Objects.toString(value, "");
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0)
+            return line.append(text);
+        return line.append('"').append(text.replace("\"", "\"\"")).append('"');
+    }
+
+    /**
+     * 追加一个来自用户输入的文本字段
+     * 以=、+、-、@、制表符或回车开头的值在Excel中会被当作公式执行，在前面加上单引号并用引号包围，使其按文本显示
+     *
+     * @param line  当前行
+     * @param value 字段值，null时输出空字段
+     * @return 返回当前行
+     */
+    private StringBuilder appendText(StringBuilder line, String value) {
+        if (value == null || value.isEmpty() || "=+-@\t\r".indexOf(value.charAt(0)) < 0)
+            return append(line, value);
+        return line.append("\"'").append(value.replace("\"", "\"\"")).append('"');
+    }
+
+    private String format(LocalDateTime time) {
+        return time == null ? null : time.format(TIME_FORMATTER);
+    }
+}
@@ -0,0 +1,289 @@
+package reggietakeout.service.impl;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import reggietakeout.entity.AddressBook;
+import reggietakeout.entity.OrderDetail;
+import reggietakeout.entity.Orders;
+import reggietakeout.entity.ShoppingCart;
+import reggietakeout.exception.CustomException;
+import reggietakeout.service.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 合并提交的下单服务
+ * <p>
+ * 请求线程只完成校验和计价，预先分配订单ID后把订单放入有界队列并立即返回订单ID；
+ * 写入线程每次从队列中取出一批订单，在一个事务中批量插入订单和订单详情并移除购物车商品，
+ * 多个订单共用一次事务提交，提交次数不再随订单数增长。队列满时拒绝下单，避免内存无限增长
+ * 只有配置为queue时才启动写入线程；停止时先在写锁内拒绝新订单，再等待写入线程提交剩余订单，超时未提交的订单标记为失败
+ */
+@Service
+@Slf4j
+public class OrderIngestServiceImpl implements OrderIngestService {
+    @Autowired
+    private OrdersService ordersService;
+    @Autowired
+    private OrderDetailService orderDetailService;
+    @Autowired
+    private AddressBookService addressBookService;
+    @Autowired
+    private ShoppingCartService shoppingCartService;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    // 下单方式，queue时启用合并提交
+    @Value("${reggie.order.ingest-mode:sync}")
+    private String ingestMode;
+    // 下单队列容量
+    @Value("${reggie.order.queue-capacity:10000}")
+    private int queueCapacity;
+    // 每个事务最多提交的订单数
+    @Value("${reggie.order.commit-batch-size:200}")
+    private int commitBatchSize;
+    // 下单状态的保留时间
+    @Value("${reggie.order.status-expire-minutes:10}")
+    private long statusExpireMinutes;
+
+    // 等待写入数据库的订单
+    private BlockingQueue<PendingOrder> queue;
+    // 订单ID到下单用户和下单状态的映射，过期后通过查询数据库判断
+    private Cache<Long, IngestStatus> statuses;
+    // 从队列中取出订单并批量提交的写入线程
+    private Thread writer;
+    private volatile boolean running;
+    // 入队时持有读锁，停止时持有写锁，停止后不会再有订单进入队列
+    private final ReadWriteLock lifecycleLock = new ReentrantReadWriteLock();
+
+    /**
+     * 创建下单队列，配置为queue时启动写入线程
+     */
+    @PostConstruct
+    public void init() {
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        statuses = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMinutes(statusExpireMinutes))
+                .build();
+        if (!isEnabled())
+            return;
+
+        running = true;
+        writer = new Thread(this::writeLoop, "order-group-commit");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * 是否使用合并提交的方式下单
+     *
+     * @return 配置为queue时返回true
+     */
+    @Override
+    public boolean isEnabled() {
+        return "queue".equals(ingestMode);
+    }
+
+    /**
+     * 校验并计价后将订单放入下单队列
+     *
+     * @param orders 用户提交的订单对象
+     * @param userId 下单用户ID
+     * @return 返回预先分配的订单ID，可以通过getStatus查询写入结果
+     */
+    @Override
+    public Long submit(Orders orders, Long userId) {
+        // 根据用户选择的地址簿ID获取地址簿信息
+        AddressBook addressBook = addressBookService.getById(orders.getAddressBookId());
+        if (addressBook == null)
+            throw new CustomException("收货地址不存在，不能下单");
+
+        // 获取当前用户购物车中所有商品的一致性快照
+        List<ShoppingCart> shoppingCarts = shoppingCartService.selectByUserId(userId);
+        if (shoppingCarts.isEmpty())
+            throw new CustomException("购物车为空，不能下单");
+
+        // 计价并填充订单信息，订单ID在入队前分配
+        List<OrderDetail> orderDetails = ordersService.priceOrders(orders, shoppingCarts);
+        ordersService.prepareOrders(orders, addressBook, userId);
+
+        return enqueue(orders, orderDetails, shoppingCarts);
+    }
+
+    /**
+     * 将已分配ID并完成计价的订单放入下单队列
+     * 检查写入线程是否运行和入队在同一把读锁内完成，停止过程持有写锁，不会出现入队成功却无人写入的订单
+     *
+     * @param orders       已填充的订单
+     * @param orderDetails 订单详情
+     * @param ordered      下单时读取的购物车快照，订单写入后从购物车中移除
+     * @return 返回订单ID
+     */
+    private Long enqueue(Orders orders, List<OrderDetail> orderDetails, List<ShoppingCart> ordered) {
+        Long orderId = orders.getId();
+        orderDetails.forEach(orderDetail -> orderDetail.setOrderId(orderId));
+
+        lifecycleLock.readLock().lock();
+        try {
+            if (!running)
+                throw new CustomException("系统维护中，请稍后重试");
+
+            statuses.put(orderId, new IngestStatus(orders.getUserId(), STATUS_QUEUED));
+            if (!queue.offer(new PendingOrder(orders, orderDetails, ordered))) {
+                statuses.invalidate(orderId);
+                throw new CustomException("下单人数过多，请稍后重试");
+            }
+        } finally {
+            lifecycleLock.readLock().unlock();
+        }
+        return orderId;
+    }
+
+    /**
+     * 查询当前用户订单的写入状态，其他用户的订单按不存在处理
+     *
+     * @param orderId 订单ID
+     * @param userId  当前用户ID
+     * @return 返回queued、committed、failed或unknown
+     */
+    @Override
+    public String getStatus(Long orderId, Long userId) {
+        IngestStatus status = statuses.getIfPresent(orderId);
+        if (status != null)
+            return status.userId().equals(userId) ? status.status() : STATUS_UNKNOWN;
+
+        // 状态已过期或订单通过同步方式提交时，以数据库中是否存在该用户的订单为准
+        long count = ordersService.count(new LambdaQueryWrapper<Orders>()
+                .eq(Orders::getId, orderId)
+                .eq(Orders::getUserId, userId));
+        return count > 0 ? STATUS_COMMITTED : STATUS_UNKNOWN;
+    }
+
+    /**
+     * 写入线程的主循环：阻塞等待第一个订单，再取出队列中已积压的订单，合并在一个事务中提交
+     * 停止后继续处理队列中剩余的订单
+     */
+    private void writeLoop() {
+        List<PendingOrder> batch = new ArrayList<>(commitBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingOrder first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null)
+                    continue;
+
+                batch.add(first);
+                queue.drainTo(batch, commitBatchSize - 1);
+                commit(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("合并提交订单失败", e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * 在一个事务中提交一批订单，失败时逐个重试，只把无法写入的订单标记为失败
+     *
+     * @param batch 一批待写入的订单
+     */
+    private void commit(List<PendingOrder> batch) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> write(batch));
+            batch.forEach(pending -> markStatus(pending, STATUS_COMMITTED));
+        } catch (RuntimeException e) {
+            log.warn("合并提交{}个订单失败，改为逐个提交：{}", batch.size(), e.getMessage());
+            for (PendingOrder pending : batch) {
+                Long orderId = pending.orders().getId();
+                try {
+                    transactionTemplate.executeWithoutResult(status -> write(List.of(pending)));
+                    markStatus(pending, STATUS_COMMITTED);
+                } catch (RuntimeException ex) {
+                    log.error("订单{}写入失败：{}", orderId, ex.getMessage());
+                    markStatus(pending, STATUS_FAILED);
+                }
+            }
+        }
+    }
+
+    /**
+     * 批量插入订单和订单详情，并从各用户的购物车中移除已下单的商品
+     *
+     * @param batch 一批待写入的订单
+     */
+    private void write(List<PendingOrder> batch) {
+        List<Orders> orders = new ArrayList<>(batch.size());
+        List<OrderDetail> orderDetails = new ArrayList<>();
+        batch.forEach(pending -> {
+            orders.add(pending.orders());
+            orderDetails.addAll(pending.orderDetails());
+        });
+
+        ordersService.saveBatch(orders);
+        orderDetailService.saveBatch(orderDetails);
+        batch.forEach(pending -> shoppingCartService.removeOrdered(pending.orders().getUserId(), pending.ordered()));
+    }
+
+    /**
+     * 记录订单的写入状态
+     *
+     * @param pending 待写入的订单
+     * @param status  写入状态
+     */
+    private void markStatus(PendingOrder pending, String status) {
+        statuses.put(pending.orders().getId(), new IngestStatus(pending.orders().getUserId(), status));
+    }
+
+    /**
+     * 停止接收新订单，等待写入线程提交队列中剩余的订单
+     * 等待超时后仍留在队列中的订单不再写入，标记为失败
+     */
+    @PreDestroy
+    public void shutdown() {
+        lifecycleLock.writeLock().lock();
+        try {
+            running = false;
+        } finally {
+            lifecycleLock.writeLock().unlock();
+        }
+        if (writer == null)
+            return;
+
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        List<PendingOrder> leftovers = new ArrayList<>();
+        queue.drainTo(leftovers);
+        if (!leftovers.isEmpty()) {
+            log.error("停止时仍有{}个订单未写入，标记为失败", leftovers.size());
+            leftovers.forEach(pending -> markStatus(pending, STATUS_FAILED));
+        }
+    }
+
+    private record PendingOrder(Orders orders, List<OrderDetail> orderDetails, List<ShoppingCart> ordered) {
+    }
+
+    private record IngestStatus(Long userId, String status) {
+    }
+}
@@ -0,0 +1,216 @@
+package reggietakeout.service.impl;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+import reggietakeout.entity.Orders;
+import reggietakeout.exception.CustomException;
+import reggietakeout.mapper.OrdersMapper;
+import reggietakeout.service.OrderNumberService;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 号段式订单号生成服务
+ * <p>
+ * 订单号由日期前缀和当天的序号组成，例如 20241105000001234，按生成顺序递增，可以直接报给店员核对
+ * 每个节点通过Redis的INCRBY一次租用一段连续的序号，号段内的序号在内存中分配，不访问Redis；
+ * 当前号段用掉大部分后在后台预取下一段，号段用完时直接切换，热路径上没有I/O
+ * 不同节点租用的号段互不重叠，保证订单号全局唯一，orders.number上的唯一索引兜底
+ * <p>
+ * Redis计数器因淘汰、清库或故障切换丢失时，先用MySQL中当天最大的订单号重建计数器，再继续租用，
+ * 避免从0开始与已有订单号冲突；重建时额外跳过一段序号，覆盖其他节点已租用但尚未落库的号段
+ */
+@Service
+@Slf4j
+public class OrderNumberServiceImpl implements OrderNumberService {
+    // 每天的序号计数器键前缀
+    private static final String KEY_PREFIX = "order_number_";
+    private static final DateTimeFormatter DAY_FORMATTER = DateTimeFormatter.BASIC_ISO_DATE;
+    // 订单号中序号部分的位数
+    private static final int SEQUENCE_LENGTH = 10;
+    // 计数器存在时租用一段序号并返回号段的最后一个序号，计数器不存在时返回nil，由调用方重建后重试
+    private static final RedisScript<Long> LEASE_SCRIPT = RedisScript.of("""
+            if redis.call('EXISTS', KEYS[1]) == 0 then
+                return false
+            end
+            return redis.call('INCRBY', KEYS[1], ARGV[1])
+            """, Long.class);
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+    @Autowired
+    private OrdersMapper ordersMapper;
+
+    // 每次租用的序号数量
+    @Value("${reggie.order.number-segment-size:1000}")
+    private long segmentSize;
+    // 当前号段剩余比例低于该值时预取下一段
+    @Value("${reggie.order.number-prefetch-ratio:0.2}")
+    private double prefetchRatio;
+    // 当天已有订单时重建计数器跳过的序号数量，需大于所有节点已租用但尚未落库的序号总数
+    @Value("${reggie.order.number-reseed-gap:1000000}")
+    private long reseedGap;
+
+    // 当前正在分配的号段和预取的下一段
+    private Segment current;
+    private Segment prefetched;
+    private boolean prefetching;
+    // 本节点当天租用过的最大序号，重建计数器时作为下限
+    private String leasedDay;
+    private long leasedEnd;
+
+    // 预取号段的后台线程
+    private final ExecutorService prefetcher = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "order-number-prefetch");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * 生成下一个订单号
+     *
+     * @return 返回日期前缀加10位序号的订单号
+     */
+    @Override
+    public synchronized String next() {
+        String day = LocalDate.now().format(DAY_FORMATTER);
+
+        // 当前号段用完或跨天时切换到预取的号段，没有可用的预取号段时同步租用
+        if (current == null || !current.day.equals(day) || current.next > current.end) {
+            if (prefetched != null && follows(prefetched, day)) {
+                current = prefetched;
+            } else {
+                current = lease(day);
+            }
+            prefetched = null;
+        }
+
+        long sequence = current.next++;
+
+        // 当前号段即将用完时在后台预取下一段
+        if (!prefetching && prefetched == null && current.end - sequence < segmentSize * prefetchRatio) {
+            prefetching = true;
+            prefetcher.execute(() -> prefetch(day));
+        }
+
+        return day + String.format("%0" + SEQUENCE_LENGTH + "d", sequence);
+    }
+
+    /**
+     * 在后台租用下一段序号
+     *
+     * @param day 日期前缀
+     */
+    private void prefetch(String day) {
+        Segment segment = null;
+        try {
+            segment = lease(day);
+        } catch (Exception e) {
+            log.warn("预取订单号段失败：{}", e.getMessage());
+        }
+        synchronized (this) {
+            // 预取期间同步租用了更大的号段时丢弃预取结果，保证本节点分配的订单号单调递增
+            prefetched = segment != null && follows(segment, segment.day) ? segment : null;
+            prefetching = false;
+        }
+    }
+
+    /**
+     * 判断号段能否接在当前号段之后使用
+     *
+     * @param segment 号段
+     * @param day     当前日期前缀
+     * @return 号段属于当天且起始序号大于当前号段的最后一个序号时返回true
+     */
+    private boolean follows(Segment segment, String day) {
+        if (!segment.day.equals(day))
+            return false;
+        return current == null || !current.day.equals(day) || segment.next > current.end;
+    }
+
+    /**
+     * 从Redis租用当天的一段序号，计数器不存在时先重建再租用
+     *
+     * @param day 日期前缀
+     * @return 返回租用到的号段
+     */
+    private Segment lease(String day) {
+        String key = KEY_PREFIX + day;
+        Long end = stringRedisTemplate.execute(LEASE_SCRIPT, List.of(key), String.valueOf(segmentSize));
+        if (end == null) {
+            // 计数器只在当天使用，重建时设置过期时间；多个节点同时重建时只有第一个生效
+            stringRedisTemplate.opsForValue().setIfAbsent(key, String.valueOf(seed(day)), 2, TimeUnit.DAYS);
+            end = stringRedisTemplate.execute(LEASE_SCRIPT, List.of(key), String.valueOf(segmentSize));
+        }
+        if (end == null)
+            throw new CustomException("订单号生成失败");
+
+        synchronized (this) {
+            if (!day.equals(leasedDay) || end > leasedEnd) {
+                leasedDay = day;
+                leasedEnd = end;
+            }
+        }
+        return new Segment(day, end - segmentSize + 1, end);
+    }
+
+    /**
+     * 计算重建计数器的初始值
+     * 取MySQL中当天最大订单号的序号和本节点当天租用过的最大序号中的较大者；
+     * 两者都为0时说明是当天第一次租用，从0开始，否则说明计数器在当天丢失过，再跳过一段序号避开其他节点未落库的号段
+     *
+     * @param day 日期前缀
+     * @return 返回计数器的初始值
+     */
+    private long seed(String day) {
+        Orders latest = ordersMapper.selectOne(new LambdaQueryWrapper<Orders>()
+                .select(Orders::getNumber)
+                .likeRight(Orders::getNumber, day)
+                .orderByDesc(Orders::getNumber)
+                .last("LIMIT 1"));
+
+        long seed = 0;
+        if (latest != null && latest.getNumber().length() == day.length() + SEQUENCE_LENGTH)
+            seed = Long.parseLong(latest.getNumber().substring(day.length()));
+        synchronized (this) {
+            if (day.equals(leasedDay))
+                seed = Math.max(seed, leasedEnd);
+        }
+
+        if (seed == 0)
+            return 0;
+        log.warn("订单号计数器{}不存在，从{}重建", KEY_PREFIX + day, seed + reseedGap);
+        return seed + reseedGap;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        prefetcher.shutdown();
+    }
+
+    /**
+     * 一段连续的序号，next为下一个可分配的序号，end为号段的最后一个序号
+     */
+    private static class Segment {
+        private final String day;
+        private final long end;
+        private long next;
+
+        private Segment(String day, long next, long end) {
+            this.day = day;
+            this.next = next;
+            this.end = end;
+        }
+    }
+}
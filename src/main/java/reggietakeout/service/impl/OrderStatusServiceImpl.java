@@ -0,0 +1,121 @@
+package reggietakeout.service.impl;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import reggietakeout.entity.Orders;
+import reggietakeout.event.OrderStatusChangedEvent;
+import reggietakeout.exception.CustomException;
+import reggietakeout.mapper.OrdersMapper;
+import reggietakeout.service.OrderStatusService;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * 订单状态机
+ * <p>
+ * 每个目标状态只允许从固定的前置状态转换而来，转换通过条件UPDATE（WHERE id IN (...) AND status = 前置状态）完成，
+ * 批量转换对每个前置状态只执行一条UPDATE，并发修改同一订单时只有一个请求生效
+ * UPDATE之前先用一条SELECT ... FOR UPDATE锁定这些订单并读取其当前状态，事务提交前其他请求无法修改这些订单，
+ * 因此每条UPDATE修改的订单恰好是锁定时处于该前置状态的订单，返回结果和事件中的前置状态都是精确的
+ * 事务提交后发布OrderStatusChangedEvent，事务回滚时不发布
+ */
+@Service
+@Slf4j
+public class OrderStatusServiceImpl implements OrderStatusService {
+    // 目标状态到允许的前置状态
+    private static final Map<Integer, List<Integer>> TRANSITIONS = Map.of(
+            TO_DISPATCH, List.of(PENDING_PAYMENT),
+            DISPATCHED, List.of(TO_DISPATCH),
+            COMPLETED, List.of(DISPATCHED),
+            CANCELLED, List.of(PENDING_PAYMENT, TO_DISPATCH));
+
+    @Autowired
+    private OrdersMapper ordersMapper;
+    @Autowired
+    private ApplicationEventPublisher applicationEventPublisher;
+
+    /**
+     * 将一批订单转换到目标状态，当前状态不允许转换的订单保持不变
+     * 调用前已处于目标状态的订单不计入结果，也不发布事件
+     *
+     * @param ids    订单ID列表
+     * @param status 目标状态
+     * @return 返回由本次调用实际完成状态转换的订单ID
+     */
+    @Override
+    @Transactional
+    public List<Long> transition(List<Long> ids, Integer status) {
+        List<Integer> sources = status == null ? null : TRANSITIONS.get(status);
+        if (sources == null)
+            throw new CustomException("订单状态无效");
+        if (ids == null || ids.isEmpty())
+            return new ArrayList<>();
+
+        // 锁定这些订单并读取当前状态，只保留处于允许的前置状态的订单
+        LinkedHashSet<Long> distinct = new LinkedHashSet<>(ids);
+        Map<Long, Integer> current = ordersMapper.selectList(new LambdaQueryWrapper<Orders>()
+                        .select(Orders::getId, Orders::getStatus)
+                        .in(Orders::getId, distinct)
+                        .in(Orders::getStatus, sources)
+                        .last("FOR UPDATE"))
+                .stream()
+                .collect(Collectors.toMap(Orders::getId, Orders::getStatus));
+
+        // 按前置状态分组，组内保持调用方传入的顺序
+        Map<Integer, List<Long>> candidates = new HashMap<>();
+        for (Long id : distinct) {
+            Integer source = current.get(id);
+            if (source != null)
+                candidates.computeIfAbsent(source, k -> new ArrayList<>()).add(id);
+        }
+
+        List<Long> changed = new ArrayList<>();
+        for (Integer source : sources) {
+            List<Long> moved = candidates.get(source);
+            if (moved == null)
+                continue;
+
+            // 条件UPDATE：订单已被锁定，修改的恰好是这些处于该前置状态的订单
+            Orders orders = new Orders();
+            orders.setStatus(status);
+            ordersMapper.update(orders, new LambdaQueryWrapper<Orders>()
+                    .in(Orders::getId, moved)
+                    .eq(Orders::getStatus, source));
+            changed.addAll(moved);
+
+            log.info("订单状态由{}变更为{}，订单数量：{}", source, status, moved.size());
+            publishAfterCommit(new OrderStatusChangedEvent(moved, source, status));
+        }
+        return changed;
+    }
+
+    /**
+     * 在事务提交后发布事件，不在事务中调用时立即发布
+     *
+     * @param event 订单状态变更事件
+     */
+    private void publishAfterCommit(OrderStatusChangedEvent event) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            applicationEventPublisher.publishEvent(event);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                applicationEventPublisher.publishEvent(event);
+            }
+        });
+    }
+}
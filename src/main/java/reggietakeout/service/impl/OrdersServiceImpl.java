@@ -1,19 +1,102 @@
 package reggietakeout.service.impl;
 
+import ch.qos.logback.core.util.StringUtil;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.toolkit.IdWorker;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import reggietakeout.cache.RedisCartStore;
 import reggietakeout.common.BaseContext;
+import reggietakeout.common.CursorPage;
+import reggietakeout.dto.OrdersQueryDto;
 import reggietakeout.entity.AddressBook;
+import reggietakeout.entity.Dish;
+import reggietakeout.entity.OrderDetail;
 import reggietakeout.entity.Orders;
+import reggietakeout.entity.Setmeal;
+import reggietakeout.entity.ShoppingCart;
+import reggietakeout.exception.CustomException;
 import reggietakeout.mapper.OrdersMapper;
-import reggietakeout.service.OrdersService;
+import reggietakeout.service.*;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 public class OrdersServiceImpl extends ServiceImpl<OrdersMapper, Orders> implements OrdersService {
+    @Autowired
+    private PageCountService pageCountService;
+    @Autowired
+    private OrderNumberService orderNumberService;
+    @Autowired
+    private OrderDetailService orderDetailService;
+    @Autowired
+    private DishService dishService;
+    @Autowired
+    private SetmealService setmealService;
+    @Autowired
+    private ShoppingCartService shoppingCartService;
+
+    /**
+     * 根据购物车快照生成订单详情，并计算订单总金额
+     *
+     * @param orders        订单对象，计算出的总金额将设置到其中
+     * @param shoppingCarts 下单时读取的购物车快照
+     * @return 返回未设置订单ID的订单详情列表
+     */
+    @Override
+    public List<OrderDetail> priceOrders(Orders orders, List<ShoppingCart> shoppingCarts) {
+        // 将购物车中的商品转换为订单详情列表
+        List<OrderDetail> orderDetails = shoppingCarts.stream().map(shoppingCart -> {
+            // 创建一个新的订单详情对象
+            OrderDetail orderDetail = new OrderDetail();
+            // 将购物车中的商品信息复制到订单详情中，但不包括ID
+            BeanUtils.copyProperties(shoppingCart, orderDetail, "id");
+
+            return orderDetail;
+        }).toList();
+
+        BigDecimal totalAmount = BigDecimal.ZERO;
+
+        // 计算订单总金额
+        for (OrderDetail orderDetail : orderDetails) {
+            totalAmount = totalAmount.add(orderDetail.getAmount().multiply(BigDecimal.valueOf(orderDetail.getNumber())));
+        }
+
+        // 设置订单总金额
+        orders.setAmount(totalAmount);
+
+        return orderDetails;
+    }
+
+    /**
+     * 填充订单的收货信息、用户ID和时间，并预先分配订单ID和订单号
+     * 预先分配ID后，订单详情可以在订单写入数据库之前关联订单
+     *
+     * @param orders      订单对象，包含订单的基本信息
+     * @param addressBook 地址簿对象，包含收货地址的相关信息
+     * @param userId      下单用户ID
+     */
+    @Override
+    public void prepareOrders(Orders orders, AddressBook addressBook, Long userId) {
+        // 构建订单对象，设置收货信息和用户ID，以及订单时间和结算时间
+        orders.setId(IdWorker.getId()); // 分配订单ID
+        orders.setNumber(orderNumberService.next()); // 分配订单号
+        orders.setPhone(addressBook.getPhone()); // 设置收货电话
+        orders.setAddress(addressBook.getDetail()); // 设置收货地址详情
+        orders.setConsignee(addressBook.getConsignee()); // 设置收货人
+        orders.setUserId(userId);// 设置用户ID
+        orders.setOrderTime(LocalDateTime.now());// 设置订单时间
+        orders.setCheckoutTime(LocalDateTime.now()); // 设置结算时间
+    }
+
     /**
      * 插入订单信息
      * <p>
@@ -28,12 +111,7 @@ public class OrdersServiceImpl extends ServiceImpl<OrdersMapper, Orders> impleme
     @Override
     public Long insertOrders(Orders orders, AddressBook addressBook) {
         // 构建订单对象，设置收货信息和用户ID，以及订单时间和结算时间
-        orders.setPhone(addressBook.getPhone()); // 设置收货电话
-        orders.setAddress(addressBook.getDetail()); // 设置收货地址详情
-        orders.setConsignee(addressBook.getConsignee()); // 设置收货人
-        orders.setUserId(BaseContext.getCurrentId());// 设置用户ID
-        orders.setOrderTime(LocalDateTime.now());// 设置订单时间
-        orders.setCheckoutTime(LocalDateTime.now()); // 设置结算时间
+        prepareOrders(orders, addressBook, BaseContext.getCurrentId());
 
         // 保存构建好的订单对象到数据库
         save(orders);
@@ -43,15 +121,153 @@ public class OrdersServiceImpl extends ServiceImpl<OrdersMapper, Orders> impleme
     }
 
     @Override
-    public Page<Orders> selectPage(Page<Orders> pageInfo) {
+    public Page<Orders> selectPage(Page<Orders> pageInfo, String countMode) {
         // 创建一个LambdaQueryWrapper对象，用于构建查询条件
         LambdaQueryWrapper<Orders> queryWrapper = new LambdaQueryWrapper<>();
         // 设置查询条件，根据当前用户的ID查询订单
         queryWrapper.eq(Orders::getUserId, BaseContext.getCurrentId());
 
-        // 调用ordersService的page方法执行分页查询
-        page(pageInfo, queryWrapper);
+        // 按指定的总数统计方式执行分页查询
+        pageCountService.page(this, pageInfo, queryWrapper, countMode);
+
+        return pageInfo;
+    }
+
+    /**
+     * 按下单时间和ID降序进行游标分页查询
+     * <p>
+     * 从上一页最后一条记录之后开始读取，不执行COUNT查询，查询耗时与翻页深度无关
+     *
+     * @param pageInfo 游标分页信息，包含上一页的游标和每页记录数
+     * @return 返回填充了当前页记录和下一页游标的分页对象
+     */
+    @Override
+    public CursorPage<Orders> selectCursorPage(CursorPage<Orders> pageInfo) {
+        LambdaQueryWrapper<Orders> queryWrapper = new LambdaQueryWrapper<>();
+        // 查询当前用户的订单
+        queryWrapper.eq(Orders::getUserId, BaseContext.getCurrentId());
+
+        // 添加游标定位条件后查询，并生成下一页的游标
+        List<Orders> orders = list(pageInfo.seek(queryWrapper, Orders::getOrderTime, Orders::getId));
+        return pageInfo.fill(orders, Orders::getOrderTime, Orders::getId);
+    }
+
+    /**
+     * 后台按条件分页查询订单，结果按下单时间和ID降序排列
+     *
+     * @param pageInfo  分页信息
+     * @param query     查询条件
+     * @param countMode 总数统计方式，为空时使用配置的默认方式
+     * @return 返回填充了查询结果的分页信息对象
+     */
+    @Override
+    public Page<Orders> selectAdminPage(Page<Orders> pageInfo, OrdersQueryDto query, String countMode) {
+        LambdaQueryWrapper<Orders> queryWrapper = adminQueryWrapper(query);
+        queryWrapper.orderByDesc(Orders::getOrderTime).orderByDesc(Orders::getId);
+
+        // 按指定的总数统计方式执行分页查询
+        pageCountService.page(this, pageInfo, queryWrapper, countMode);
 
         return pageInfo;
     }
+
+    /**
+     * 后台按条件进行游标分页查询，按下单时间和ID降序从游标位置开始读取
+     * 每个过滤条件都有以（过滤字段，下单时间，ID）为前缀的索引，定位到游标位置后顺序读取一页，耗时与表大小和翻页深度无关
+     *
+     * @param pageInfo 游标分页信息，包含上一页的游标和每页记录数
+     * @param query    查询条件
+     * @return 返回填充了当前页记录和下一页游标的分页对象
+     */
+    @Override
+    public CursorPage<Orders> selectAdminCursorPage(CursorPage<Orders> pageInfo, OrdersQueryDto query) {
+        // 添加游标定位条件后查询，并生成下一页的游标
+        List<Orders> orders = list(pageInfo.seek(adminQueryWrapper(query), Orders::getOrderTime, Orders::getId));
+        return pageInfo.fill(orders, Orders::getOrderTime, Orders::getId);
+    }
+
+    /**
+     * 再来一单：按当前的菜品和套餐信息重新计价，用订单中的商品替换用户的购物车
+     * <p>
+     * 依次查询订单、订单详情、订单涉及的菜品和套餐（各一条IN查询），再整体替换购物车，
+     * 语句数量与订单中的商品数量无关；已停售或已删除的菜品和套餐不会加入购物车
+     *
+     * @param orderId 订单ID
+     * @param userId  当前用户ID，只能再来一单自己的订单
+     * @return 返回替换后的购物车列表
+     */
+    @Override
+    @Transactional
+    public List<ShoppingCart> again(Long orderId, Long userId) {
+        Orders orders = getOne(new LambdaQueryWrapper<Orders>()
+                .eq(Orders::getId, orderId)
+                .eq(Orders::getUserId, userId));
+        if (orders == null)
+            throw new CustomException("订单不存在");
+
+        List<OrderDetail> orderDetails = orderDetailService.selectByOrderId(orderId);
+
+        // 一次性查询订单涉及的全部菜品和套餐，只保留仍在售卖的
+        Set<Long> dishIds = orderDetails.stream().map(OrderDetail::getDishId).filter(Objects::nonNull).collect(Collectors.toSet());
+        Set<Long> setmealIds = orderDetails.stream().map(OrderDetail::getSetmealId).filter(Objects::nonNull).collect(Collectors.toSet());
+        Map<Long, Dish> dishes = dishIds.isEmpty() ? Map.of() : dishService.listByIds(dishIds).stream()
+                .filter(dish -> Integer.valueOf(1).equals(dish.getStatus()))
+                .collect(Collectors.toMap(Dish::getId, Function.identity()));
+        Map<Long, Setmeal> setmeals = setmealIds.isEmpty() ? Map.of() : setmealService.listByIds(setmealIds).stream()
+                .filter(setmeal -> Integer.valueOf(1).equals(setmeal.getStatus()))
+                .collect(Collectors.toMap(Setmeal::getId, Function.identity()));
+
+        // 按当前的名称、图片和价格生成购物车商品，同一商品合并数量；价格以分为单位保存，购物车金额以元为单位
+        Map<String, ShoppingCart> items = new LinkedHashMap<>();
+        for (OrderDetail orderDetail : orderDetails) {
+            ShoppingCart item = new ShoppingCart();
+            if (orderDetail.getDishId() != null) {
+                Dish dish = dishes.get(orderDetail.getDishId());
+                if (dish == null)
+                    continue;
+                item.setDishId(dish.getId());
+                item.setDishFlavor(orderDetail.getDishFlavor());
+                item.setName(dish.getName());
+                item.setImage(dish.getImage());
+                item.setAmount(dish.getPrice().movePointLeft(2));
+            } else {
+                Setmeal setmeal = setmeals.get(orderDetail.getSetmealId());
+                if (setmeal == null)
+                    continue;
+                item.setSetmealId(setmeal.getId());
+                item.setName(setmeal.getName());
+                item.setImage(setmeal.getImage());
+                item.setAmount(setmeal.getPrice().movePointLeft(2));
+            }
+            item.setUserId(userId);
+            item.setNumber(orderDetail.getNumber());
+
+            items.merge(RedisCartStore.itemKey(item), item, (existing, duplicate) -> {
+                existing.setNumber(existing.getNumber() + duplicate.getNumber());
+                return existing;
+            });
+        }
+        if (items.isEmpty())
+            throw new CustomException("订单中的菜品和套餐均已停售");
+
+        return shoppingCartService.replaceCart(userId, new ArrayList<>(items.values()));
+    }
+
+    /**
+     * 根据后台查询条件构造查询包装器
+     * 订单号按前缀匹配，电话、收货人和状态按等值匹配，均可以使用对应的索引
+     *
+     * @param query 查询条件
+     * @return 返回查询包装器
+     */
+    private LambdaQueryWrapper<Orders> adminQueryWrapper(OrdersQueryDto query) {
+        LambdaQueryWrapper<Orders> queryWrapper = new LambdaQueryWrapper<>();
+        queryWrapper.likeRight(StringUtil.notNullNorEmpty(query.getNumber()), Orders::getNumber, query.getNumber())
+                .eq(query.getStatus() != null, Orders::getStatus, query.getStatus())
+                .eq(StringUtil.notNullNorEmpty(query.getPhone()), Orders::getPhone, query.getPhone())
+                .eq(StringUtil.notNullNorEmpty(query.getConsignee()), Orders::getConsignee, query.getConsignee())
+                .ge(query.getBeginTime() != null, Orders::getOrderTime, query.getBeginTime())
+                .le(query.getEndTime() != null, Orders::getOrderTime, query.getEndTime());
+        return queryWrapper;
+    }
 }
@@ -0,0 +1,118 @@
+package reggietakeout.service.impl;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.metadata.TableInfo;
+import com.baomidou.mybatisplus.core.metadata.TableInfoHelper;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.baomidou.mybatisplus.extension.service.IService;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reggietakeout.mapper.TableStatsMapper;
+import reggietakeout.service.PageCountService;
+
+import java.time.Duration;
+import java.util.TreeMap;
+
+@Service
+public class PageCountServiceImpl implements PageCountService {
+    @Autowired
+    private TableStatsMapper tableStatsMapper;
+
+    // 未指定统计方式时使用的默认方式
+    @Value("${reggie.page.count-mode:exact}")
+    private String defaultCountMode;
+    // 总数缓存的有效时间
+    @Value("${reggie.page.count-cache-seconds:10}")
+    private long countCacheSeconds;
+    // 无过滤条件时，估算行数不低于该值才使用估算值，小表的估算值误差较大，仍执行COUNT
+    @Value("${reggie.page.estimate-threshold:100000}")
+    private long estimateThreshold;
+
+    // 查询条件到总数的缓存，同时缓存表的估算行数
+    private Cache<String, Long> counts;
+
+    @PostConstruct
+    public void init() {
+        counts = Caffeine.newBuilder()
+                .maximumSize(1000)
+                .expireAfterWrite(Duration.ofSeconds(countCacheSeconds))
+                .build();
+    }
+
+    /**
+     * 按指定的总数统计方式执行分页查询
+     * <p>
+     * exact：每次都执行COUNT查询，默认方式
+     * cached：在短时间内复用相同条件的COUNT结果，只在缓存过期后重新统计，总数最多滞后缓存有效时间
+     * estimated：无过滤条件、没有逻辑删除字段且表的估算行数较大时直接使用估算值，否则与cached相同
+     * none：不执行COUNT查询，总数返回-1
+     * cached和estimated返回的总数不精确，只应由能够接受近似总数的接口通过countMode参数显式选用
+     *
+     * @param service      实体对应的服务，用于执行分页查询
+     * @param pageInfo     分页信息，查询结果和总数将填充到其中
+     * @param queryWrapper 查询条件
+     * @param countMode    总数统计方式，为空时使用配置的默认方式
+     * @param <T>          实体类型
+     * @return 返回填充了查询结果的分页信息对象
+     */
+    @Override
+    public <T> Page<T> page(IService<T> service, Page<T> pageInfo, LambdaQueryWrapper<T> queryWrapper, String countMode) {
+        String mode = countMode == null || countMode.isEmpty() ? defaultCountMode : countMode;
+
+        // 不统计总数，只执行分页查询
+        if (MODE_NONE.equals(mode)) {
+            pageInfo.setSearchCount(false);
+            service.page(pageInfo, queryWrapper);
+            pageInfo.setTotal(-1);
+            return pageInfo;
+        }
+
+        // 每次都执行COUNT查询
+        if (!MODE_CACHED.equals(mode) && !MODE_ESTIMATED.equals(mode)) {
+            service.page(pageInfo, queryWrapper);
+            return pageInfo;
+        }
+
+        TableInfo tableInfo = TableInfoHelper.getTableInfo(service.getEntityClass());
+        String tableName = tableInfo.getTableName();
+
+        // 优先使用估算值或缓存中的总数，命中时跳过COUNT查询
+        // 估算行数包含已逻辑删除的记录，带逻辑删除字段的表即使没有过滤条件也不使用估算值
+        Long total = MODE_ESTIMATED.equals(mode) && queryWrapper.isEmptyOfWhere() && !tableInfo.isWithLogicDelete()
+                ? estimatedRows(tableName) : null;
+        String countKey = tableName + ":" + queryWrapper.getCustomSqlSegment() + ":" + new TreeMap<>(queryWrapper.getParamNameValuePairs());
+        if (total == null)
+            total = counts.getIfPresent(countKey);
+
+        if (total != null) {
+            pageInfo.setSearchCount(false);
+            service.page(pageInfo, queryWrapper);
+            pageInfo.setTotal(total);
+            return pageInfo;
+        }
+
+        // 缓存未命中时执行COUNT查询，并缓存统计结果
+        service.page(pageInfo, queryWrapper);
+        counts.put(countKey, pageInfo.getTotal());
+        return pageInfo;
+    }
+
+    /**
+     * 获取表的估算行数，估算值同样在短时间内缓存
+     *
+     * @param tableName 表名
+     * @return 返回估算行数，低于阈值或无法获取时返回null
+     */
+    private Long estimatedRows(String tableName) {
+        Long rows = counts.get(tableName + ":estimate", key -> {
+            Long estimate = tableStatsMapper.selectEstimatedRows(tableName);
+            return estimate == null ? -1L : estimate;
+        });
+
+        return rows >= estimateThreshold ? rows : null;
+    }
+}
@@ -1,17 +1,18 @@
 package reggietakeout.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
-import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.baomidou.mybatisplus.extension.toolkit.SqlHelper;
 import org.springframework.stereotype.Service;
 import reggietakeout.dto.SetmealDto;
 import reggietakeout.entity.SetmealDish;
 import reggietakeout.mapper.SetmealDishMapper;
 import reggietakeout.service.SetmealDishService;
 
-import java.util.List;
+import java.math.BigDecimal;
+import java.util.*;
 
 @Service
-public class SetmealDishServiceImpl extends ServiceImpl<SetmealDishMapper, SetmealDish> implements SetmealDishService {
+public class SetmealDishServiceImpl extends BatchServiceImpl<SetmealDishMapper, SetmealDish> implements SetmealDishService {
     /**
      * 插入套餐菜品关联数据
      * <p>
@@ -26,13 +27,110 @@ public class SetmealDishServiceImpl extends ServiceImpl<SetmealDishMapper, Setme
         // 获取套餐包含的菜品列表
         List<SetmealDish> setmealDishes = setmealDto.getSetmealDishes();
 
-        // 为每个菜品设置套餐ID
-        setmealDishes.forEach(setmealDish -> setmealDish.setSetmealId(setmealDto.getId()));
+        // 为每个菜品设置套餐ID，未指定排序的菜品使用默认排序
+        setmealDishes.forEach(setmealDish -> {
+            setmealDish.setSetmealId(setmealDto.getId());
+            defaultSort(setmealDish);
+        });
 
         // 批量保存菜品信息
         saveBatch(setmealDishes);
     }
 
+    /**
+     * 更新套餐菜品关联数据
+     * <p>
+     * 以菜品ID为键，将传入的套餐菜品与数据库中已有的记录逐一比较，计算出最少的插入、更新和删除操作，
+     * 并在同一个批处理会话中一次性提交，菜品组成没有变化时不产生任何写操作
+     *
+     * @param setmealDto 套餐详情对象，包含套餐ID及其最新的菜品列表
+     */
+    @Override
+    public void updateSetmealDish(SetmealDto setmealDto) {
+        Long setmealId = setmealDto.getId();
+
+        // 读取套餐现有的菜品，并按菜品ID建立索引；同一菜品的重复记录只保留第一条参与比较，其余直接删除
+        Map<Long, SetmealDish> stored = new LinkedHashMap<>();
+        List<Long> deletes = new ArrayList<>();
+        for (SetmealDish setmealDish : selectBySetmealId(setmealId))
+            if (stored.putIfAbsent(setmealDish.getDishId(), setmealDish) != null)
+                deletes.add(setmealDish.getId());
+
+        List<SetmealDish> inserts = new ArrayList<>();
+        List<SetmealDish> updates = new ArrayList<>();
+        if (setmealDto.getSetmealDishes() != null) {
+            for (SetmealDish setmealDish : setmealDto.getSetmealDishes()) {
+                // 未指定排序的菜品使用默认排序，既用于插入，也用于与现有记录比较
+                defaultSort(setmealDish);
+                SetmealDish existing = stored.remove(setmealDish.getDishId());
+
+                // 新加入套餐的菜品，清空前端可能携带的ID，由数据库重新生成
+                if (existing == null) {
+                    setmealDish.setId(null);
+                    setmealDish.setSetmealId(setmealId);
+                    inserts.add(setmealDish);
+                    continue;
+                }
+
+                // 份数、名称、价格或排序发生变化时才更新
+                if (!Objects.equals(existing.getCopies(), setmealDish.getCopies())
+                        || !Objects.equals(existing.getName(), setmealDish.getName())
+                        || !Objects.equals(existing.getSort(), setmealDish.getSort())
+                        || !samePrice(existing.getPrice(), setmealDish.getPrice())) {
+                    SetmealDish update = new SetmealDish();
+                    update.setId(existing.getId());
+                    update.setCopies(setmealDish.getCopies());
+                    update.setName(setmealDish.getName());
+                    update.setPrice(setmealDish.getPrice());
+                    update.setSort(setmealDish.getSort());
+                    updates.add(update);
+                }
+            }
+        }
+
+        // 剩余的已有菜品已从套餐中移除，需要删除
+        stored.values().forEach(setmealDish -> deletes.add(setmealDish.getId()));
+
+        if (inserts.isEmpty() && updates.isEmpty() && deletes.isEmpty())
+            return;
+
+        // 删除、更新和插入在同一个批处理会话中执行，一次性提交到数据库，新增的菜品用一条多行INSERT插入
+        SqlHelper.executeBatch(getSqlSessionFactory(), log, sqlSession -> {
+            SetmealDishMapper mapper = sqlSession.getMapper(SetmealDishMapper.class);
+            if (!deletes.isEmpty())
+                mapper.deleteBatchIds(deletes);
+            updates.forEach(mapper::updateById);
+            if (!inserts.isEmpty())
+                mapper.insertBatchSomeColumn(inserts);
+        });
+    }
+
+    /**
+     * 为未指定排序的套餐菜品设置默认排序
+     * <p>
+     * 多行INSERT会显式写入每一列，值为null的列不会像单行插入那样被跳过而使用数据库默认值，
+     * sort列不允许为null，管理端新增套餐时又不传排序，因此在插入前补上与数据库一致的默认值0
+     *
+     * @param setmealDish 套餐菜品
+     */
+    private void defaultSort(SetmealDish setmealDish) {
+        if (setmealDish.getSort() == null)
+            setmealDish.setSort(0);
+    }
+
+    /**
+     * 比较两个价格是否相等，忽略小数位数的差异
+     *
+     * @param left  价格
+     * @param right 价格
+     * @return 两个价格数值相等或均为null时返回true
+     */
+    private boolean samePrice(BigDecimal left, BigDecimal right) {
+        if (left == null || right == null)
+            return left == right;
+        return left.compareTo(right) == 0;
+    }
+
     /**
      * 根据套餐ID选择套餐菜品
      *
@@ -49,4 +147,26 @@ public class SetmealDishServiceImpl extends ServiceImpl<SetmealDishMapper, Setme
         // 执行查询并返回结果列表
         return list(queryWrapper);
     }
+
+    /**
+     * 根据一组套餐ID批量查询套餐菜品
+     * <p>
+     * 使用一条IN查询取回所有套餐的菜品关联数据，由调用方在内存中按套餐ID分组
+     *
+     * @param setmealIds 套餐ID集合
+     * @return 返回这些套餐关联的全部套餐菜品，集合为空时返回空列表
+     */
+    @Override
+    public List<SetmealDish> selectBySetmealIds(Collection<Long> setmealIds) {
+        // 套餐ID为空时无需查询，直接返回空列表
+        if (setmealIds == null || setmealIds.isEmpty())
+            return new ArrayList<>();
+
+        // 创建一个Lambda查询包装器，设置查询条件为套餐ID在给定集合中
+        LambdaQueryWrapper<SetmealDish> queryWrapper = new LambdaQueryWrapper<>();
+        queryWrapper.in(SetmealDish::getSetmealId, setmealIds);
+
+        // 执行查询并返回结果列表
+        return list(queryWrapper);
+    }
 }
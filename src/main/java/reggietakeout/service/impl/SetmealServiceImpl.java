@@ -5,16 +5,22 @@ import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import reggietakeout.common.CursorPage;
 import reggietakeout.dto.SetmealDto;
 import reggietakeout.entity.Setmeal;
 import reggietakeout.mapper.SetmealMapper;
 import reggietakeout.service.SetmealService;
+import reggietakeout.service.PageCountService;
 
 import java.util.List;
 
 @Service
 public class SetmealServiceImpl extends ServiceImpl<SetmealMapper, Setmeal> implements SetmealService {
+    @Autowired
+    private PageCountService pageCountService;
+
     /**
      * 根据类别ID获取套餐数量
      * <p>
@@ -63,10 +69,11 @@ public class SetmealServiceImpl extends ServiceImpl<SetmealMapper, Setmeal> impl
      *
      * @param pageInfo 分页信息，包含当前页码和每页记录数
      * @param name     套餐名称，用于模糊查询
+     * @param countMode 总数统计方式：exact、cached、estimated或none，为空时使用配置的默认方式
      * @return 返回填充了套餐信息的分页对象
      */
     @Override
-    public Page selectPage(Page pageInfo, String name) {
+    public Page selectPage(Page pageInfo, String name, String countMode) {
         // 创建Lambda查询包装器，用于条件查询和排序
         LambdaQueryWrapper<Setmeal> queryWrapper = new LambdaQueryWrapper<>();
 
@@ -74,13 +81,33 @@ public class SetmealServiceImpl extends ServiceImpl<SetmealMapper, Setmeal> impl
         queryWrapper.like(StringUtil.notNullNorEmpty(name), Setmeal::getName, name)
                 .orderByDesc(Setmeal::getUpdateTime);
 
-        // 执行分页查询
-        page(pageInfo, queryWrapper);
+        // 按指定的总数统计方式执行分页查询，结果填充到pageInfo中
+        pageCountService.page(this, pageInfo, queryWrapper, countMode);
 
         // 返回填充了查询结果的分页信息对象
         return pageInfo;
     }
 
+    /**
+     * 按更新时间和ID降序进行游标分页查询
+     * <p>
+     * 从上一页最后一条记录之后开始读取，不执行COUNT查询，查询耗时与翻页深度无关
+     *
+     * @param pageInfo 游标分页信息，包含上一页的游标和每页记录数
+     * @param name     套餐名称，用于模糊查询
+     * @return 返回填充了当前页记录和下一页游标的分页对象
+     */
+    @Override
+    public CursorPage<Setmeal> selectCursorPage(CursorPage<Setmeal> pageInfo, String name) {
+        LambdaQueryWrapper<Setmeal> queryWrapper = new LambdaQueryWrapper<>();
+        // 名称不为空时按名称模糊查询
+        queryWrapper.like(StringUtil.notNullNorEmpty(name), Setmeal::getName, name);
+
+        // 添加游标定位条件后查询，并生成下一页的游标
+        List<Setmeal> setmeals = list(pageInfo.seek(queryWrapper, Setmeal::getUpdateTime, Setmeal::getId));
+        return pageInfo.fill(setmeals, Setmeal::getUpdateTime, Setmeal::getId);
+    }
+
     /**
      * 根据类别ID和状态选择套餐列表
      *
@@ -100,4 +127,21 @@ public class SetmealServiceImpl extends ServiceImpl<SetmealMapper, Setmeal> impl
         // 执行查询并返回结果列表
         return list(queryWrapper);
     }
+
+    /**
+     * 根据状态查询所有套餐，并按更新时间降序排列
+     *
+     * @param status 套餐状态，0为停售，1为起售
+     * @return 返回符合条件的套餐列表
+     */
+    @Override
+    public List<Setmeal> selectByStatus(Integer status) {
+        // 创建Lambda查询包装器，设置查询条件为状态等于传入的status，并按更新时间降序排列
+        LambdaQueryWrapper<Setmeal> queryWrapper = new LambdaQueryWrapper<>();
+        queryWrapper.eq(Setmeal::getStatus, status)
+                .orderByDesc(Setmeal::getUpdateTime);
+
+        // 执行查询并返回结果列表
+        return list(queryWrapper);
+    }
 }
@@ -1,80 +1,82 @@
 package reggietakeout.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
-import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.baomidou.mybatisplus.core.toolkit.IdWorker;
+import com.baomidou.mybatisplus.extension.toolkit.SqlHelper;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import reggietakeout.cache.RedisCartStore;
+import reggietakeout.dto.CartOperationDto;
 import reggietakeout.entity.ShoppingCart;
+import reggietakeout.exception.CustomException;
 import reggietakeout.mapper.ShoppingCartMapper;
 import reggietakeout.service.ShoppingCartService;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Service
-public class ShoppingCartServiceImpl extends ServiceImpl<ShoppingCartMapper, ShoppingCart> implements ShoppingCartService {
+public class ShoppingCartServiceImpl extends BatchServiceImpl<ShoppingCartMapper, ShoppingCart> implements ShoppingCartService {
+    @Autowired
+    private RedisCartStore redisCartStore;
+
+    // 一次批量请求允许的最大操作数
+    @Value("${reggie.cart.batch-max-operations:100}")
+    private int batchMaxOperations;
+
     /**
      * 插入购物车项
      * 如果购物车项已存在，则增加数量；否则，创建新的购物车项
+     * 同一用户的同一菜品口味或套餐由唯一键(user_id, item_key)保证只有一条记录
+     * 启用Redis购物车时通过一次Redis往返原子完成，由后台线程异步回写数据库
      *
      * @param shoppingCart 购物车对象，包含用户ID、菜品ID、套餐ID和数量等信息
      */
     @Override
     public void insertShoppingCart(ShoppingCart shoppingCart) {
-        // 获取菜品ID和套餐ID
-        Long dishId = shoppingCart.getDishId();
-        Long setmealId = shoppingCart.getSetmealId();
-
-        // 创建查询条件，根据用户ID、菜品ID或套餐ID查询购物车中是否已存在该项
-        LambdaQueryWrapper<ShoppingCart> queryWrapper = new LambdaQueryWrapper<>();
-        queryWrapper.eq(ShoppingCart::getUserId, shoppingCart.getUserId())
-                .eq(dishId != null, ShoppingCart::getDishId, dishId)
-                .eq(setmealId != null, ShoppingCart::getSetmealId, setmealId);
-
-        // 执行查询，获取购物车中的现有项
-        ShoppingCart shoppingCartdb = getOne(queryWrapper);
-
-        // 如果购物车项已存在，则增加数量
-        if (shoppingCartdb != null) {
-            Integer number = shoppingCartdb.getNumber() + 1;
-            shoppingCartdb.setNumber(number);
-            updateById(shoppingCartdb);
-        } else {
-            // 如果购物车项不存在，则设置数量为1，并保存到数据库
-            shoppingCart.setNumber(1);
-            save(shoppingCart);
+        if (redisCartStore.isEnabled()) {
+            redisCartStore.add(shoppingCart);
+            return;
         }
+
+        // 一条INSERT ... ON DUPLICATE KEY UPDATE语句完成插入或累加，无需先查询，并发点击不会丢失数量或插入重复记录
+        shoppingCart.setId(IdWorker.getId());
+        shoppingCart.setNumber(1);
+        shoppingCart.setCreateTime(LocalDateTime.now());
+        baseMapper.upsertIncrement(shoppingCart);
     }
 
     /**
      * 删除购物车中的商品
-     * 此方法用于从购物车中删除指定的菜品或套餐当菜品或套餐的数量为1时，直接从数据库中移除该购物车项；
-     * 否则，将该菜品或套餐的数量减1并更新数据库
+     * 此方法用于将购物车中指定的菜品或套餐的数量减1，数量减到0的购物车项不再出现在购物车中
+     * 启用Redis购物车时通过一次Redis往返原子完成，由后台线程异步回写数据库
      *
-     * @param dishId    菜品ID，用于指定要删除的菜品如果为null，则不考虑菜品
-     * @param setmealId 套餐ID，用于指定要删除的套餐如果为null，则不考虑套餐
-     * @param userId    用户ID，用于确定用户的购物车
+     * @param dishId     菜品ID，用于指定要删除的菜品如果为null，则不考虑菜品
+     * @param setmealId  套餐ID，用于指定要删除的套餐如果为null，则不考虑套餐
+     * @param dishFlavor 菜品口味，为null时匹配该菜品的任一口味
+     * @param userId     用户ID，用于确定用户的购物车
      */
     @Override
-    public void deleteShoppingCart(Long dishId, Long setmealId, Long userId) {
-        // 创建查询条件构造器
-        LambdaQueryWrapper<ShoppingCart> queryWrapper = new LambdaQueryWrapper<>();
-        // 设置查询条件：根据用户ID，菜品ID和套餐ID查询购物车项
-        queryWrapper.eq(ShoppingCart::getUserId, userId)
-                .eq(dishId != null, ShoppingCart::getDishId, dishId)
-                .eq(setmealId != null, ShoppingCart::getSetmealId, setmealId);
-
-        // 根据查询条件从数据库中获取购物车项
-        ShoppingCart shoppingCartdb = getOne(queryWrapper);
-
-        // 判断购物车项中的菜品或套餐数量
-        if (shoppingCartdb.getNumber() == 1) {
-            // 如果数量为1，直接删除购物车项
-            remove(queryWrapper);
-        } else {
-            // 如果数量大于1，减少数量并更新购物车项
-            Integer number = shoppingCartdb.getNumber() - 1;
-            shoppingCartdb.setNumber(number);
-            updateById(shoppingCartdb);
+    public void deleteShoppingCart(Long dishId, Long setmealId, String dishFlavor, Long userId) {
+        if (redisCartStore.isEnabled()) {
+            redisCartStore.sub(userId, dishId, setmealId, dishFlavor);
+            return;
         }
+
+        // 一条条件UPDATE将数量减1，最少减到0，无需先查询当前数量
+        // 减到0的记录由查询过滤，再次加购时由upsertIncrement在原记录上累加，批量操作、清空购物车和下单时删除
+        ShoppingCart item = new ShoppingCart();
+        item.setUserId(userId);
+        item.setDishId(dishId);
+        item.setSetmealId(setmealId);
+        item.setDishFlavor(dishFlavor);
+        item.setNumber(1);
+        baseMapper.subtract(item);
     }
 
     /**
@@ -84,6 +86,11 @@ public class ShoppingCartServiceImpl extends ServiceImpl<ShoppingCartMapper, Sho
      */
     @Override
     public void deleteByUserId(Long userId) {
+        if (redisCartStore.isEnabled()) {
+            redisCartStore.clear(userId);
+            return;
+        }
+
         // 创建Lambda查询包装器，用于构建查询条件
         LambdaQueryWrapper<ShoppingCart> queryWrapper = new LambdaQueryWrapper<>();
         // 设置查询条件，根据用户ID进行等值查询
@@ -95,18 +102,136 @@ public class ShoppingCartServiceImpl extends ServiceImpl<ShoppingCartMapper, Sho
 
     /**
      * 根据用户ID选择购物车列表
+     * 启用Redis购物车时从Redis哈希中读取一致性快照，不访问数据库
      *
      * @param userId 用户ID，用于查询与用户关联的购物车信息
      * @return 返回与用户ID关联的购物车列表
      */
     @Override
     public List<ShoppingCart> selectByUserId(Long userId) {
+        if (redisCartStore.isEnabled())
+            return redisCartStore.list(userId);
+
         // 创建Lambda查询包装器，用于构建查询条件
         LambdaQueryWrapper<ShoppingCart> queryWrapper = new LambdaQueryWrapper<>();
-        // 设置查询条件，等同于SQL中的WHERE user_id = ?
-        queryWrapper.eq(ShoppingCart::getUserId, userId);
+        // 设置查询条件，等同于SQL中的WHERE user_id = ? AND number > 0，减到0但尚未删除的记录不返回
+        queryWrapper.eq(ShoppingCart::getUserId, userId).gt(ShoppingCart::getNumber, 0);
 
         // 执行查询并返回结果列表
         return list(queryWrapper);
     }
+
+    /**
+     * 下单成功后从购物车中移除已下单的商品
+     * <p>
+     * 使用数据库购物车时在下单事务中删除用户的全部购物车记录；
+     * 使用Redis购物车时在下单事务提交后扣除快照中的商品数量，事务回滚时购物车保持不变
+     *
+     * @param userId  用户ID
+     * @param ordered 下单时读取的购物车快照
+     */
+    @Override
+    public void removeOrdered(Long userId, List<ShoppingCart> ordered) {
+        if (!redisCartStore.isEnabled()) {
+            deleteByUserId(userId);
+            return;
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    redisCartStore.removeOrdered(userId, ordered);
+                }
+            });
+        } else {
+            redisCartStore.removeOrdered(userId, ordered);
+        }
+    }
+
+    /**
+     * 按顺序原子执行一组购物车操作，并返回修改后的购物车
+     * <p>
+     * 启用Redis购物车时所有操作在一个Lua脚本中执行，一次Redis往返完成并返回整个购物车；
+     * 使用数据库购物车时所有操作在一个事务中以批处理语句提交，减到0的记录最后用一条语句删除
+     *
+     * @param userId     用户ID
+     * @param operations 购物车操作列表，按客户端提交的顺序执行
+     * @return 返回修改后的购物车列表
+     */
+    @Override
+    @Transactional
+    public List<ShoppingCart> applyOperations(Long userId, List<CartOperationDto> operations) {
+        if (operations == null || operations.isEmpty())
+            return selectByUserId(userId);
+        if (operations.size() > batchMaxOperations)
+            throw new CustomException("购物车操作数量超过" + batchMaxOperations + "个");
+
+        // 校验操作类型并补全数量，加购和减购的数量默认为1
+        for (CartOperationDto operation : operations) {
+            if (operation.getDishId() == null && operation.getSetmealId() == null)
+                throw new CustomException("购物车操作缺少菜品或套餐");
+
+            String op = operation.getOp();
+            if (CartOperationDto.SET.equals(op)) {
+                if (operation.getNumber() == null || operation.getNumber() < 0)
+                    throw new CustomException("购物车数量无效");
+            } else if (CartOperationDto.ADD.equals(op) || CartOperationDto.SUB.equals(op)) {
+                if (operation.getNumber() == null)
+                    operation.setNumber(1);
+                else if (operation.getNumber() <= 0)
+                    throw new CustomException("购物车数量无效");
+            } else {
+                throw new CustomException("购物车操作类型无效");
+            }
+        }
+
+        if (redisCartStore.isEnabled())
+            return redisCartStore.apply(userId, operations);
+
+        // 所有操作在同一个批处理会话中按顺序执行，一次性提交到数据库
+        SqlHelper.executeBatch(getSqlSessionFactory(), log, sqlSession -> {
+            ShoppingCartMapper mapper = sqlSession.getMapper(ShoppingCartMapper.class);
+            for (CartOperationDto operation : operations) {
+                ShoppingCart item = new ShoppingCart();
+                BeanUtils.copyProperties(operation, item);
+                item.setId(IdWorker.getId());
+                item.setUserId(userId);
+                item.setCreateTime(LocalDateTime.now());
+
+                switch (operation.getOp()) {
+                    case CartOperationDto.ADD -> mapper.upsertIncrement(item);
+                    case CartOperationDto.SUB -> mapper.subtract(item);
+                    default -> mapper.upsertNumber(item);
+                }
+            }
+            // 删除减到0或设置为0的记录
+            mapper.deleteEmpty(userId);
+        });
+
+        return selectByUserId(userId);
+    }
+
+    /**
+     * 用给定的商品替换用户的整个购物车
+     * <p>
+     * 启用Redis购物车时通过一个Lua脚本原子替换；使用数据库购物车时在一个事务中用一条DELETE删除旧记录，
+     * 再用一条多行INSERT插入新记录，语句数量与商品数量无关
+     *
+     * @param userId 用户ID
+     * @param items  新的购物车商品，同一商品只能出现一次
+     * @return 返回替换后的购物车列表
+     */
+    @Override
+    @Transactional
+    public List<ShoppingCart> replaceCart(Long userId, List<ShoppingCart> items) {
+        if (redisCartStore.isEnabled())
+            return redisCartStore.replace(userId, items);
+
+        remove(new LambdaQueryWrapper<ShoppingCart>().eq(ShoppingCart::getUserId, userId));
+        items.forEach(item -> item.setUserId(userId));
+        saveBatch(items);
+
+        return items;
+    }
 }
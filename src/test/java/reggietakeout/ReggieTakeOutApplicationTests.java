@@ -1,21 +1,74 @@
 package reggietakeout;
 
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.toolkit.IdWorker;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.ResultHandler;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+import reggietakeout.cache.CacheInvalidator;
+import reggietakeout.cache.CategoryDictionary;
+import reggietakeout.cache.JsonbRedisSerializer;
+import reggietakeout.cache.MenuCache;
+import reggietakeout.cache.RedisCartStore;
+import reggietakeout.common.BaseContext;
+import reggietakeout.common.CursorPage;
+import reggietakeout.controller.DishController;
+import reggietakeout.controller.OrdersController;
+import reggietakeout.controller.SetmealController;
+import reggietakeout.dto.CartOperationDto;
+import reggietakeout.dto.DishDto;
+import reggietakeout.dto.MenuSnapshotDto;
+import reggietakeout.dto.OrdersDto;
+import reggietakeout.dto.OrdersQueryDto;
+import reggietakeout.dto.SetmealDto;
 import reggietakeout.entity.*;
+import reggietakeout.event.OrderStatusChangedEvent;
+import reggietakeout.exception.CustomException;
+import reggietakeout.mapper.ShoppingCartMapper;
 import reggietakeout.service.*;
 import reggietakeout.utils.CaptchaUtils;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
-import java.util.Arrays;
-import java.util.List;
-import java.util.Set;
+import java.nio.charset.StandardCharsets;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @SpringBootTest
 @Slf4j
@@ -25,6 +78,14 @@ class ReggieTakeOutApplicationTests {
     @Autowired
     private DishService dishService;
     @Autowired
+    private DishFlavorService dishFlavorService;
+    @Autowired
+    private SetmealDishService setmealDishService;
+    @Autowired
+    private SetmealService setmealService;
+    @Autowired
+    private MenuBulkService menuBulkService;
+    @Autowired
     private ShoppingCartService shoppingCartService;
     @Autowired
     private AddressBookService addressBookService;
@@ -32,9 +93,44 @@ class ReggieTakeOutApplicationTests {
     private OrdersService ordersService;
     @Autowired
     private OrderDetailService orderDetailService;
+    @Autowired
+    private OrderIngestService orderIngestService;
+    @Autowired
+    private OrderNumberService orderNumberService;
+    @Autowired
+    private OrderStatusService orderStatusService;
+    @Autowired
+    private OrderExportService orderExportService;
+
+    @Autowired
+    private DishController dishController;
+    @Autowired
+    private SetmealController setmealController;
+    @Autowired
+    private OrdersController ordersController;
 
     @Autowired
     private RedisTemplate<String, Object> redisTemplate;
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+    @Autowired
+    private StatementCounter statementCounter;
+    @Autowired
+    private OrderEventCollector orderEventCollector;
+    @Autowired
+    private MenuCache menuCache;
+    @Autowired
+    private CacheInvalidator cacheInvalidator;
+    @Autowired
+    private CategoryDictionary categoryDictionary;
+    @Autowired
+    private RedisCartStore redisCartStore;
+    @Autowired
+    private ShoppingCartMapper shoppingCartMapper;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private MenuSnapshotService menuSnapshotService;
 
     @Test
     void contextLoads() {
@@ -43,7 +139,7 @@ class ReggieTakeOutApplicationTests {
     @Test
     void testSelectPage() {
         Page<Employee> pageInfo = new Page<>(1, 10);
-        Page<Employee> pageResult = employeeService.selectPage(pageInfo, "A");
+        Page<Employee> pageResult = employeeService.selectPage(pageInfo, "A", PageCountService.MODE_EXACT);
         System.out.println(pageResult.getRecords());
     }
 
@@ -78,7 +174,7 @@ class ReggieTakeOutApplicationTests {
     void testQueryDishPage() {
         Page<Dish> pageInfo = new Page<>(1L, 10L);
 
-        dishService.selectPage(pageInfo, null);
+        dishService.selectPage(pageInfo, null, PageCountService.MODE_EXACT);
 
         pageInfo.getRecords().forEach(System.out::println);
     }
@@ -107,9 +203,579 @@ class ReggieTakeOutApplicationTests {
         shoppingCartService.insertShoppingCart(shoppingCart);
     }
 
+    @Test
+    void testRedisCartWriteBehind() {
+        Long userId = -2L;
+        redisCartStore.clear(userId);
+
+        ShoppingCart dish = new ShoppingCart();
+        dish.setUserId(userId);
+        dish.setDishId(1853439708533260290L);
+        dish.setDishFlavor("少糖");
+        dish.setName("程序员猫猫");
+        dish.setAmount(new BigDecimal("15.00"));
+
+        ShoppingCart setmeal = new ShoppingCart();
+        setmeal.setUserId(userId);
+        setmeal.setSetmealId(1415580119015145474L);
+        setmeal.setName("儿童套餐A计划");
+        setmeal.setAmount(new BigDecimal("40.00"));
+
+        // 加购两份菜品、一份套餐，再减购一份菜品（未指定口味时按菜品ID匹配）
+        assertEquals(1, redisCartStore.add(dish));
+        assertEquals(2, redisCartStore.add(dish));
+        assertEquals(1, redisCartStore.add(setmeal));
+        assertEquals(1, redisCartStore.sub(userId, dish.getDishId(), null, null));
+
+        List<ShoppingCart> items = redisCartStore.list(userId);
+        assertEquals(2, items.size());
+        assertTrue(items.stream().allMatch(item -> item.getNumber() == 1));
+
+        // 其他节点持有该用户的回写锁时不回写，用户仍留在待回写集合中
+        stringRedisTemplate.opsForValue().set(RedisCartStore.flushLockKey(userId), "other-node", 30, TimeUnit.SECONDS);
+        redisCartStore.flush();
+        assertTrue(Boolean.TRUE.equals(stringRedisTemplate.opsForSet().isMember(RedisCartStore.DIRTY_KEY, userId.toString())));
+        assertEquals("other-node", stringRedisTemplate.opsForValue().get(RedisCartStore.flushLockKey(userId)));
+        stringRedisTemplate.delete(RedisCartStore.flushLockKey(userId));
+
+        // 回写提交后用户移出待回写集合并释放回写锁，数据库中的记录与Redis中的购物车一致
+        redisCartStore.flush();
+        assertTrue(Boolean.FALSE.equals(stringRedisTemplate.opsForSet().isMember(RedisCartStore.DIRTY_KEY, userId.toString())));
+        assertTrue(Boolean.FALSE.equals(stringRedisTemplate.hasKey(RedisCartStore.flushLockKey(userId))));
+        Map<Long, Integer> stored = shoppingCartService.list(new LambdaQueryWrapper<ShoppingCart>().eq(ShoppingCart::getUserId, userId))
+                .stream()
+                .collect(Collectors.toMap(ShoppingCart::getId, ShoppingCart::getNumber));
+        assertEquals(items.stream().collect(Collectors.toMap(ShoppingCart::getId, ShoppingCart::getNumber)), stored);
+
+        // 下单后扣除快照中的数量，清理测试数据
+        redisCartStore.removeOrdered(userId, items);
+        assertTrue(redisCartStore.list(userId).isEmpty());
+        redisCartStore.flush();
+    }
+
+    /**
+     * 同一用户并发加购、减购同一菜品，验证数据库购物车的条件语句不会丢失数量或产生重复记录
+     * 直接调用Mapper，覆盖未启用Redis购物车时的数据库路径
+     */
+    @Test
+    void testCartUpsertConcurrency() throws InterruptedException {
+        Long userId = -3L;
+        Long dishId = 1853439708533260290L;
+        shoppingCartMapper.delete(new LambdaQueryWrapper<ShoppingCart>().eq(ShoppingCart::getUserId, userId));
+
+        // 16个线程各加购50次同一菜品口味，再各加购10次另一口味
+        runConcurrently(16, () -> {
+            for (int i = 0; i < 50; i++)
+                shoppingCartMapper.upsertIncrement(cartItem(userId, dishId, "少糖"));
+            for (int i = 0; i < 10; i++)
+                shoppingCartMapper.upsertIncrement(cartItem(userId, dishId, "多糖"));
+        });
+        Map<String, Integer> numbers = shoppingCartMapper.selectList(new LambdaQueryWrapper<ShoppingCart>().eq(ShoppingCart::getUserId, userId))
+                .stream()
+                .collect(Collectors.toMap(ShoppingCart::getDishFlavor, ShoppingCart::getNumber));
+        assertEquals(Map.of("少糖", 800, "多糖", 160), numbers);
+
+        // 16个线程各减购50次指定口味，每次减购是一条条件UPDATE，数量减到0后不再减少
+        runConcurrently(16, () -> {
+            for (int i = 0; i < 50; i++)
+                shoppingCartMapper.subtract(cartItem(userId, dishId, "少糖"));
+        });
+        numbers = shoppingCartMapper.selectList(new LambdaQueryWrapper<ShoppingCart>().eq(ShoppingCart::getUserId, userId))
+                .stream()
+                .collect(Collectors.toMap(ShoppingCart::getDishFlavor, ShoppingCart::getNumber));
+        assertEquals(Map.of("少糖", 0, "多糖", 160), numbers);
+
+        // 数量为0的记录由deleteEmpty删除
+        shoppingCartMapper.deleteEmpty(userId);
+        assertEquals(1, shoppingCartMapper.selectCount(new LambdaQueryWrapper<ShoppingCart>().eq(ShoppingCart::getUserId, userId)));
+        shoppingCartMapper.delete(new LambdaQueryWrapper<ShoppingCart>().eq(ShoppingCart::getUserId, userId));
+    }
+
+    @Test
+    void testCartBatchOperations() {
+        Long userId = -4L;
+        shoppingCartService.deleteByUserId(userId);
+
+        CartOperationDto addDish = cartOperation(CartOperationDto.ADD, 1853439708533260290L, null, "少糖", 3);
+        CartOperationDto addSetmeal = cartOperation(CartOperationDto.ADD, null, 1415580119015145474L, null, null);
+        CartOperationDto subDish = cartOperation(CartOperationDto.SUB, 1853439708533260290L, null, null, null);
+        CartOperationDto setSetmeal = cartOperation(CartOperationDto.SET, null, 1415580119015145474L, null, 5);
+
+        // 一次请求按顺序执行：菜品加3份、套餐加1份、菜品减1份、套餐设为5份
+        List<ShoppingCart> cart = shoppingCartService.applyOperations(userId, List.of(addDish, addSetmeal, subDish, setSetmeal));
+        Map<String, Integer> numbers = cart.stream()
+                .collect(Collectors.toMap(item -> item.getDishId() != null ? "dish" : "setmeal", ShoppingCart::getNumber));
+        assertEquals(Map.of("dish", 2, "setmeal", 5), numbers);
+        assertEquals(cart.size(), shoppingCartService.selectByUserId(userId).size());
+
+        // 设为0时删除该商品，无效的操作类型整体拒绝
+        CartOperationDto clearSetmeal = cartOperation(CartOperationDto.SET, null, 1415580119015145474L, null, 0);
+        assertEquals(1, shoppingCartService.applyOperations(userId, List.of(clearSetmeal)).size());
+        assertThrows(CustomException.class, () -> shoppingCartService.applyOperations(userId,
+                List.of(addSetmeal, cartOperation("clear", null, 1415580119015145474L, null, null))));
+        assertEquals(1, shoppingCartService.selectByUserId(userId).size());
+
+        shoppingCartService.deleteByUserId(userId);
+    }
+
+    private CartOperationDto cartOperation(String op, Long dishId, Long setmealId, String dishFlavor, Integer number) {
+        CartOperationDto operation = new CartOperationDto();
+        operation.setOp(op);
+        operation.setDishId(dishId);
+        operation.setSetmealId(setmealId);
+        operation.setDishFlavor(dishFlavor);
+        operation.setName(dishId != null ? "程序员猫猫" : "儿童套餐A计划");
+        operation.setAmount(new BigDecimal(dishId != null ? "15.00" : "40.00"));
+        operation.setNumber(number);
+        return operation;
+    }
+
+    private ShoppingCart cartItem(Long userId, Long dishId, String dishFlavor) {
+        ShoppingCart shoppingCart = new ShoppingCart();
+        shoppingCart.setId(IdWorker.getId());
+        shoppingCart.setUserId(userId);
+        shoppingCart.setDishId(dishId);
+        shoppingCart.setDishFlavor(dishFlavor);
+        shoppingCart.setName("程序员猫猫");
+        shoppingCart.setAmount(new BigDecimal("15.00"));
+        shoppingCart.setNumber(1);
+        shoppingCart.setCreateTime(LocalDateTime.now());
+        return shoppingCart;
+    }
+
+    private void runConcurrently(int threads, Runnable task) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int i = 0; i < threads; i++) {
+            executor.execute(() -> {
+                try {
+                    start.await();
+                    task.run();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(60, TimeUnit.SECONDS));
+    }
+
+    /**
+     * 对比同步下单与合并提交下单的吞吐量：8个用户并发各提交100个订单，每个订单包含2个购物车商品
+     * 两种方式都通过下单接口完成读取地址、读取购物车、计价、写入订单和移除购物车商品的完整流程，
+     * 每次下单前用一次批量写入重新填充该用户的购物车；合并提交方式计时到所有订单写入数据库为止
+     * 耗时较长，默认不执行，使用 -Dbench=true 运行
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "bench", matches = "true")
+    void benchmarkOrderGroupCommit() throws InterruptedException {
+        int threads = 8;
+        int ordersPerThread = 100;
+        List<Long> userIds = new ArrayList<>();
+        for (long i = 0; i < threads; i++)
+            userIds.add(-100L - i);
+
+        // 同步方式：每个订单在请求线程中单独提交事务
+        long syncNanos = benchmarkSubmit(userIds, ordersPerThread, null);
+
+        // 合并提交方式：临时切换为queue并启动写入线程，入队后立即返回，等待所有订单写入数据库后计时结束
+        Map<Long, Long> queued = new ConcurrentHashMap<>();
+        ReflectionTestUtils.setField(orderIngestService, "ingestMode", "queue");
+        ReflectionTestUtils.invokeMethod(orderIngestService, "init");
+        long queueNanos;
+        try {
+            queueNanos = benchmarkSubmit(userIds, ordersPerThread, queued);
+        } finally {
+            ReflectionTestUtils.invokeMethod(orderIngestService, "shutdown");
+            ReflectionTestUtils.setField(orderIngestService, "ingestMode", "sync");
+        }
+
+        assertEquals(threads * ordersPerThread, queued.size());
+        long total = (long) threads * ordersPerThread;
+        System.out.printf("同步下单：%d ms，%.0f 单/秒%n", syncNanos / 1_000_000, total * 1e9 / syncNanos);
+        System.out.printf("合并提交：%d ms，%.0f 单/秒%n", queueNanos / 1_000_000, total * 1e9 / queueNanos);
+
+        // 清理测试数据
+        List<Long> orderIds = ordersService.list(new LambdaQueryWrapper<Orders>().in(Orders::getUserId, userIds))
+                .stream()
+                .map(Orders::getId)
+                .toList();
+        if (!orderIds.isEmpty()) {
+            orderDetailService.remove(new LambdaQueryWrapper<OrderDetail>().in(OrderDetail::getOrderId, orderIds));
+            ordersService.removeByIds(orderIds);
+        }
+        userIds.forEach(shoppingCartService::deleteByUserId);
+    }
+
+    /**
+     * 每个用户一个线程，通过下单接口连续下单，返回从开始到所有订单写入数据库的耗时
+     *
+     * @param userIds         下单用户，每个用户一个线程
+     * @param ordersPerThread 每个用户的下单数量
+     * @param queued          合并提交方式下收集返回的订单ID及其下单用户，同步方式传入null
+     * @return 返回耗时（纳秒）
+     */
+    private long benchmarkSubmit(List<Long> userIds, int ordersPerThread, Map<Long, Long> queued) throws InterruptedException {
+        Iterator<Long> users = userIds.iterator();
+        long start = System.nanoTime();
+        runConcurrently(userIds.size(), () -> {
+            Long userId;
+            synchronized (users) {
+                userId = users.next();
+            }
+            BaseContext.setCurrentId(userId);
+            for (int i = 0; i < ordersPerThread; i++) {
+                shoppingCartService.replaceCart(userId, benchmarkCart());
+
+                Orders orders = new Orders();
+                orders.setAddressBookId(1417414526093082626L);
+                orders.setPayMethod(1);
+                String result = ordersController.submit(orders).getData();
+                if (queued != null)
+                    queued.put(Long.valueOf(result), userId);
+            }
+        });
+
+        // 等待队列中的订单全部写入数据库，其他用户查询不到该订单的写入状态
+        if (queued != null)
+            for (Map.Entry<Long, Long> order : queued.entrySet()) {
+                String status;
+                while (OrderIngestService.STATUS_QUEUED.equals(status = orderIngestService.getStatus(order.getKey(), order.getValue())))
+                    Thread.sleep(1);
+                assertEquals(OrderIngestService.STATUS_COMMITTED, status);
+                assertEquals(OrderIngestService.STATUS_UNKNOWN, orderIngestService.getStatus(order.getKey(), -1L));
+            }
+        return System.nanoTime() - start;
+    }
+
+    private List<ShoppingCart> benchmarkCart() {
+        ShoppingCart dish = new ShoppingCart();
+        dish.setDishId(1853439708533260290L);
+        dish.setName("程序员猫猫");
+        dish.setNumber(2);
+        dish.setAmount(new BigDecimal("15.00"));
+        dish.setCreateTime(LocalDateTime.now());
+
+        ShoppingCart setmeal = new ShoppingCart();
+        setmeal.setSetmealId(1415580119015145474L);
+        setmeal.setName("儿童套餐A计划");
+        setmeal.setNumber(1);
+        setmeal.setAmount(new BigDecimal("40.00"));
+        setmeal.setCreateTime(LocalDateTime.now());
+        return List.of(dish, setmeal);
+    }
+
+    private Orders benchmarkOrder(AddressBook addressBook) {
+        Orders orders = new Orders();
+        orders.setAddressBookId(addressBook.getId());
+        orders.setPayMethod(1);
+        orders.setAmount(new BigDecimal("70.00"));
+        ordersService.prepareOrders(orders, addressBook, -5L);
+        return orders;
+    }
+
+    private List<OrderDetail> benchmarkOrderDetails(Long orderId) {
+        OrderDetail dish = new OrderDetail();
+        dish.setOrderId(orderId);
+        dish.setDishId(1853439708533260290L);
+        dish.setName("程序员猫猫");
+        dish.setNumber(2);
+        dish.setAmount(new BigDecimal("15.00"));
+
+        OrderDetail setmeal = new OrderDetail();
+        setmeal.setOrderId(orderId);
+        setmeal.setSetmealId(1415580119015145474L);
+        setmeal.setName("儿童套餐A计划");
+        setmeal.setNumber(1);
+        setmeal.setAmount(new BigDecimal("40.00"));
+        return List.of(dish, setmeal);
+    }
+
+    /**
+     * 8个线程并发生成16万个订单号，验证订单号唯一且每个线程内递增，并输出每秒生成数量
+     * 耗时较长，默认不执行，使用 -Dbench=true 运行
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "bench", matches = "true")
+    void benchmarkOrderNumberAllocation() throws InterruptedException {
+        int threads = 8;
+        int perThread = 20000;
+        Set<String> numbers = ConcurrentHashMap.newKeySet();
+        AtomicInteger outOfOrder = new AtomicInteger();
+
+        long start = System.nanoTime();
+        runConcurrently(threads, () -> {
+            String previous = "";
+            for (int i = 0; i < perThread; i++) {
+                String number = orderNumberService.next();
+                if (number.compareTo(previous) <= 0)
+                    outOfOrder.incrementAndGet();
+                numbers.add(number);
+                previous = number;
+            }
+        });
+        long nanos = System.nanoTime() - start;
+
+        assertEquals(threads * perThread, numbers.size());
+        assertEquals(0, outOfOrder.get());
+        System.out.printf("生成%d个订单号：%d ms，%.0f 个/秒%n", numbers.size(), nanos / 1_000_000, numbers.size() * 1e9 / nanos);
+    }
+
+    /**
+     * Redis中的订单号计数器丢失后，重建的计数器不小于已分配的订单号，之后生成的订单号仍然递增
+     */
+    @Test
+    void testOrderNumberCounterReseed() {
+        String first = orderNumberService.next();
+        String day = first.substring(0, 8);
+        stringRedisTemplate.delete("order_number_" + day);
+
+        // 用完本节点已租用和预取的号段，迫使重新租用
+        String previous = first;
+        for (int i = 0; i < 3000; i++) {
+            String number = orderNumberService.next();
+            assertTrue(number.compareTo(previous) > 0);
+            previous = number;
+        }
+
+        String counter = stringRedisTemplate.opsForValue().get("order_number_" + day);
+        assertTrue(counter != null && Long.parseLong(counter) > Long.parseLong(first.substring(8)));
+    }
+
+    @Test
+    void testOrderDetailMultiRowInsert() {
+        Long orderId = IdWorker.getId();
+        List<OrderDetail> orderDetails = new ArrayList<>();
+        for (int i = 0; i < 30; i++)
+            orderDetails.addAll(benchmarkOrderDetails(orderId).subList(0, 1));
+
+        transactionTemplate.executeWithoutResult(status -> {
+            // 30个订单详情用一条多行INSERT插入，主键由MyBatis-Plus逐行生成
+            statementCounter.reset();
+            orderDetailService.saveBatch(orderDetails);
+            assertEquals(1, statementCounter.getCount());
+
+            assertTrue(orderDetails.stream().allMatch(orderDetail -> orderDetail.getId() != null));
+            assertEquals(30, orderDetailService.selectByOrderId(orderId).size());
+            status.setRollbackOnly();
+        });
+    }
+
+    /**
+     * 管理端新增和修改套餐时不传菜品排序，多行INSERT应写入默认排序而不是null
+     */
+    @Test
+    void testSetmealDishDefaultSort() {
+        BaseContext.setCurrentId(1L);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            SetmealDto setmealDto = new SetmealDto();
+            setmealDto.setCategoryId(-1L);
+            setmealDto.setName("测试套餐" + IdWorker.getId());
+            setmealDto.setPrice(new BigDecimal("38.00"));
+            setmealDto.setStatus(1);
+            setmealDto.setSetmealDishes(new ArrayList<>(List.of(setmealDish(-100L), setmealDish(-101L))));
+
+            // 新增套餐：套餐和套餐菜品均通过服务层保存
+            setmealDto.setId(setmealService.insertSetmeal(setmealDto));
+            setmealDishService.insertSetmealDish(setmealDto);
+
+            // 修改套餐：差异更新时新加入的菜品同样不传排序
+            SetmealDto changed = copyOf(setmealDto);
+            changed.getSetmealDishes().add(setmealDish(-102L));
+            changed.getSetmealDishes().forEach(setmealDish -> setmealDish.setSort(null));
+            setmealDishService.updateSetmealDish(changed);
+
+            List<SetmealDish> stored = setmealDishService.selectBySetmealId(setmealDto.getId());
+            assertEquals(3, stored.size());
+            assertTrue(stored.stream().allMatch(setmealDish -> setmealDish.getSort() == 0));
+            status.setRollbackOnly();
+        });
+    }
+
+    private SetmealDish setmealDish(Long dishId) {
+        SetmealDish setmealDish = new SetmealDish();
+        setmealDish.setDishId(dishId);
+        setmealDish.setName("菜品" + dishId);
+        setmealDish.setPrice(new BigDecimal("18.00"));
+        setmealDish.setCopies(1);
+        return setmealDish;
+    }
+
+    @Test
+    void testOrderHistoryStatementCount() {
+        AddressBook addressBook = addressBookService.getById(1417414526093082626L);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            // 为测试用户插入10个订单，每个订单2个订单详情
+            List<Long> orderIds = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                Orders orders = benchmarkOrder(addressBook);
+                ordersService.save(orders);
+                orderDetailService.saveBatch(benchmarkOrderDetails(orders.getId()));
+                orderIds.add(orders.getId());
+            }
+
+            BaseContext.setCurrentId(-5L);
+            statementCounter.reset();
+            Page<OrdersDto> page = ordersController.page(1, 10, null, PageCountService.MODE_NONE).getData();
+
+            // 分页查询 + 订单详情IN查询，与当前页的订单数量无关
+            assertEquals(2, statementCounter.getCount());
+            assertEquals(new HashSet<>(orderIds), page.getRecords().stream().map(OrdersDto::getId).collect(Collectors.toSet()));
+            assertTrue(page.getRecords().stream().allMatch(ordersDto -> ordersDto.getOrderDetails().size() == 2));
+            status.setRollbackOnly();
+        });
+    }
+
+    @Test
+    void testAdminOrderSearchCursorPage() {
+        AddressBook addressBook = addressBookService.getById(1417414526093082626L);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            // 插入5个收货电话相同的订单
+            Set<Long> orderIds = new HashSet<>();
+            for (int i = 0; i < 5; i++) {
+                Orders orders = benchmarkOrder(addressBook);
+                orders.setPhone("19900000022");
+                ordersService.save(orders);
+                orderIds.add(orders.getId());
+            }
+
+            OrdersQueryDto query = new OrdersQueryDto();
+            query.setPhone("19900000022");
+
+            // 每页2条逐页读取，每页只执行一条查询，结果不重复、不遗漏
+            List<Orders> seen = new ArrayList<>();
+            String cursor = "";
+            do {
+                statementCounter.reset();
+                CursorPage<Orders> page = (CursorPage<Orders>) ordersController.adminPage(1, 2, query, cursor, null).getData();
+                assertEquals(1, statementCounter.getCount());
+
+                seen.addAll(page.getRecords());
+                cursor = page.getNextCursor();
+            } while (cursor != null);
+
+            assertEquals(orderIds, seen.stream().map(Orders::getId).collect(Collectors.toSet()));
+            assertEquals(orderIds.size(), seen.size());
+            status.setRollbackOnly();
+        });
+    }
+
+    @Test
+    void testOrderStatusTransitions() {
+        AddressBook addressBook = addressBookService.getById(1417414526093082626L);
+        List<Long> orderIds = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Orders orders = benchmarkOrder(addressBook);
+            orders.setStatus(OrderStatusService.PENDING_PAYMENT);
+            ordersService.save(orders);
+            orderIds.add(orders.getId());
+        }
+        List<Long> paid = orderIds.subList(0, 2);
+        Long pending = orderIds.get(2);
+        orderEventCollector.clear();
+
+        try {
+            // 待付款的订单不能直接派送
+            assertTrue(orderStatusService.transition(orderIds, OrderStatusService.DISPATCHED).isEmpty());
+
+            // 锁定订单的SELECT ... FOR UPDATE + 一条条件UPDATE，语句数量与订单数量无关
+            statementCounter.reset();
+            assertEquals(paid, orderStatusService.transition(paid, OrderStatusService.TO_DISPATCH));
+            assertEquals(2, statementCounter.getCount());
+
+            // 第一个订单先派送；再次派送两个订单时，已处于已派送状态的订单不计入结果，也不发布事件
+            assertEquals(List.of(paid.get(0)), orderStatusService.transition(List.of(paid.get(0)), OrderStatusService.DISPATCHED));
+            assertEquals(List.of(paid.get(1)), orderStatusService.transition(paid, OrderStatusService.DISPATCHED));
+
+            // 取消全部订单：只有待付款的订单可以取消，已派送的订单保持不变
+            assertEquals(List.of(pending), orderStatusService.transition(orderIds, OrderStatusService.CANCELLED));
+            assertThrows(CustomException.class, () -> orderStatusService.transition(orderIds, OrderStatusService.PENDING_PAYMENT));
+            assertThrows(CustomException.class, () -> orderStatusService.transition(orderIds, null));
+
+            // 事务提交后按前置状态发布事件
+            assertEquals(List.of(
+                    new OrderStatusChangedEvent(paid, OrderStatusService.PENDING_PAYMENT, OrderStatusService.TO_DISPATCH),
+                    new OrderStatusChangedEvent(List.of(paid.get(0)), OrderStatusService.TO_DISPATCH, OrderStatusService.DISPATCHED),
+                    new OrderStatusChangedEvent(List.of(paid.get(1)), OrderStatusService.TO_DISPATCH, OrderStatusService.DISPATCHED),
+                    new OrderStatusChangedEvent(List.of(pending), OrderStatusService.PENDING_PAYMENT, OrderStatusService.CANCELLED)),
+                    orderEventCollector.getEvents());
+        } finally {
+            ordersService.removeByIds(orderIds);
+        }
+    }
+
+    @Test
+    void testOrderAgainStatementCount() {
+        AddressBook addressBook = addressBookService.getById(1417414526093082626L);
+        Long userId = -5L;
+
+        transactionTemplate.executeWithoutResult(status -> {
+            // 两个订单分别包含2个和20个订单详情
+            List<Long> orderIds = new ArrayList<>();
+            for (int size : new int[]{1, 10}) {
+                Orders orders = benchmarkOrder(addressBook);
+                ordersService.save(orders);
+                List<OrderDetail> orderDetails = new ArrayList<>();
+                for (int i = 0; i < size; i++)
+                    orderDetails.addAll(benchmarkOrderDetails(orders.getId()));
+                orderDetailService.saveBatch(orderDetails);
+                orderIds.add(orders.getId());
+            }
+
+            // 订单、订单详情、菜品、套餐各一条查询，语句数量与订单大小无关
+            List<Integer> counts = new ArrayList<>();
+            for (Long orderId : orderIds) {
+                statementCounter.reset();
+                List<ShoppingCart> cart = ordersService.again(orderId, userId);
+                counts.add(statementCounter.getCount());
+                assertTrue(cart.size() <= 2);
+            }
+            assertEquals(counts.get(0), counts.get(1));
+            status.setRollbackOnly();
+        });
+        shoppingCartService.deleteByUserId(userId);
+    }
+
+    @Test
+    void testOrderCsvExport() {
+        AddressBook addressBook = addressBookService.getById(1417414526093082626L);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            // 插入一个包含2个订单详情的订单，其中一个名称包含逗号和引号，另一个名称形如Excel公式
+            Orders orders = benchmarkOrder(addressBook);
+            ordersService.save(orders);
+            List<OrderDetail> orderDetails = benchmarkOrderDetails(orders.getId());
+            orderDetails.get(0).setName("猫猫,\"特辣\"");
+            orderDetails.get(1).setName("=HYPERLINK(\"http://example.com\")");
+            orderDetailService.saveBatch(orderDetails);
+
+            // 导出下单时间前后1秒内的订单
+            StringWriter writer = new StringWriter();
+            try {
+                long rows = orderExportService.exportCsv(orders.getOrderTime().minusSeconds(1), orders.getOrderTime().plusSeconds(1), writer);
+                assertEquals(2, rows);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+
+            String[] lines = writer.toString().split("\n");
+            assertEquals(3, lines.length);
+            assertTrue(lines[0].startsWith("订单号,"));
+            assertTrue(Arrays.stream(lines).skip(1).allMatch(line -> line.startsWith(orders.getNumber() + ",")));
+            assertTrue(writer.toString().contains("\"猫猫,\"\"特辣\"\"\""));
+            // 公式字段加上单引号前缀，按文本显示
+            assertTrue(writer.toString().contains(",\"'=HYPERLINK(\"\"http://example.com\"\")\","));
+            status.setRollbackOnly();
+        });
+    }
+
     @Test
     void testReduceShoppingCartNumber() {
-        shoppingCartService.deleteShoppingCart(1853439708533260290L, null, 1854447513386000385L);
+        shoppingCartService.deleteShoppingCart(1853439708533260290L, null, null, 1854447513386000385L);
     }
 
     @Test
@@ -173,4 +839,490 @@ class ReggieTakeOutApplicationTests {
         System.out.println(keys);
         redisTemplate.delete(keys);
     }
+
+    @Test
+    void testDishListStatementCount() {
+        Long categoryId = 1397844263642378242L;
+        // 清除两级缓存，确保请求会访问数据库
+        menuCache.evict(MenuCache.dishKey(categoryId, 1));
+
+        statementCounter.reset();
+        dishController.dishList(categoryId, 1);
+
+        // 菜品查询 + 口味IN查询，与分类下的菜品数量无关
+        assertEquals(2, statementCounter.getCount());
+    }
+
+    @Test
+    void testMenuPageStatementCount() {
+        // 预热分类字典，首次访问时会加载一次全部分类
+        dishController.page(1, 10, null, null, PageCountService.MODE_EXACT);
+
+        statementCounter.reset();
+        dishController.page(1, 10, null, null, PageCountService.MODE_EXACT);
+        // 分页查询 + COUNT，分类名称从分类字典获取
+        assertEquals(2, statementCounter.getCount());
+
+        statementCounter.reset();
+        setmealController.page(1, 10, null, null, PageCountService.MODE_EXACT);
+        // 分页查询 + COUNT + 套餐菜品IN查询
+        assertEquals(3, statementCounter.getCount());
+    }
+
+    @Test
+    void testCategoryDictionaryMissReloadsOnce() {
+        // 不存在的分类第一次未命中时重新加载一次字典，之后在下一次刷新前不再访问数据库
+        statementCounter.reset();
+        categoryDictionary.getName(-1L);
+        assertTrue(statementCounter.getCount() <= 1);
+
+        statementCounter.reset();
+        for (int i = 0; i < 10; i++)
+            assertEquals(null, categoryDictionary.getName(-1L));
+        assertEquals(0, statementCounter.getCount());
+    }
+
+    @Test
+    void testPageCountModes() {
+        // 第一次请求执行COUNT并缓存总数，有效期内翻页复用缓存的总数，只执行分页查询
+        Page<DishDto> first = dishController.page(1, 5, "a", null, PageCountService.MODE_CACHED).getData();
+        statementCounter.reset();
+        Page<DishDto> second = dishController.page(2, 5, "a", null, PageCountService.MODE_CACHED).getData();
+        assertEquals(1, statementCounter.getCount());
+        assertEquals(first.getTotal(), second.getTotal());
+
+        // 不统计总数时只执行分页查询，总数返回-1
+        statementCounter.reset();
+        Page<DishDto> uncounted = dishController.page(1, 5, null, null, PageCountService.MODE_NONE).getData();
+        assertEquals(1, statementCounter.getCount());
+        assertEquals(-1, uncounted.getTotal());
+    }
+
+    @Test
+    void testDishCursorPage() {
+        // 预热分类字典
+        dishController.page(1, 5, null, "", null);
+
+        // 按游标逐页读取全部菜品，每页只执行一条查询且不执行COUNT，各页记录不重复
+        Set<Long> seen = new HashSet<>();
+        String cursor = "";
+        do {
+            statementCounter.reset();
+            CursorPage<DishDto> page = (CursorPage<DishDto>) dishController.page(1, 5, null, cursor, null).getData();
+            assertEquals(1, statementCounter.getCount());
+
+            page.getRecords().forEach(dishDto -> assertTrue(seen.add(dishDto.getId())));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        assertEquals(dishService.count(), seen.size());
+    }
+
+    @Test
+    void testBulkDishStatusStatementCount() {
+        List<Long> ids = dishService.selectByStatus(1).stream()
+                .limit(20)
+                .map(Dish::getId)
+                .toList();
+
+        // 查询受影响的分类 + 一条批量UPDATE，语句数量与菜品数量无关
+        statementCounter.reset();
+        dishController.noSell(ids);
+        assertEquals(2, statementCounter.getCount());
+
+        // 恢复起售状态
+        dishController.yesSell(ids);
+    }
+
+    @Test
+    void testBulkDeleteStatementCount() {
+        List<Long> dishIds = dishService.list().stream().limit(20).map(Dish::getId).toList();
+
+        // 查询受影响的分类 + 删除口味 + 删除菜品，语句数量与菜品数量无关
+        transactionTemplate.executeWithoutResult(status -> {
+            statementCounter.reset();
+            menuBulkService.deleteDishes(dishIds);
+            assertEquals(3, statementCounter.getCount());
+            status.setRollbackOnly();
+        });
+
+        // 存在正在售卖的套餐时，只用一条查询完成校验并拒绝删除
+        List<Long> setmealIds = setmealService.selectByStatus(1).stream().map(Setmeal::getId).toList();
+        if (!setmealIds.isEmpty()) {
+            statementCounter.reset();
+            assertThrows(CustomException.class, () -> menuBulkService.deleteSetmeals(setmealIds));
+            assertEquals(1, statementCounter.getCount());
+        }
+    }
+
+    @Test
+    void testCacheInvalidatedAfterCommit() {
+        String key = MenuCache.dishKey(-1L, 1);
+        menuCache.evict(key);
+        menuCache.get(key, () -> "before");
+
+        // 事务中登记的缓存键在提交前不会被删除，提交后才删除
+        transactionTemplate.executeWithoutResult(status -> {
+            cacheInvalidator.invalidate(key);
+            assertEquals("before", menuCache.get(key, () -> "during"));
+        });
+        assertEquals("after", menuCache.get(key, () -> "after"));
+
+        // 事务回滚时不删除缓存
+        transactionTemplate.executeWithoutResult(status -> {
+            cacheInvalidator.invalidate(key);
+            status.setRollbackOnly();
+        });
+        assertEquals("after", menuCache.get(key, () -> "rolled back"));
+
+        menuCache.evict(key);
+    }
+
+    @Test
+    void testDishFlavorDiffUpdate() {
+        DishFlavor sample = dishFlavorService.list().get(0);
+        DishDto dishDto = dishController.getById(sample.getDishId()).getData();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            // 口味未变化：只读取一次现有口味，不产生写操作
+            statementCounter.reset();
+            dishFlavorService.updateDishFlavor(dishDto);
+            assertEquals(1, statementCounter.getCount());
+
+            // 修改一个口味的取值：读取 + 一条批量UPDATE
+            dishDto.getFlavors().get(0).setValue("[\"测试\"]");
+            statementCounter.reset();
+            dishFlavorService.updateDishFlavor(dishDto);
+            assertEquals(2, statementCounter.getCount());
+
+            // 数据库中存在同名的重复口味时，多余的记录随差异更新一起删除
+            BaseContext.setCurrentId(1L);
+            DishFlavor duplicate = new DishFlavor();
+            duplicate.setDishId(dishDto.getId());
+            duplicate.setName(dishDto.getFlavors().get(0).getName());
+            duplicate.setValue("[\"重复\"]");
+            dishFlavorService.save(duplicate);
+            dishFlavorService.updateDishFlavor(dishDto);
+            assertEquals(dishDto.getFlavors().size(), dishFlavorService.selectByDishId(dishDto.getId()).size());
+
+            status.setRollbackOnly();
+        });
+    }
+
+    @Test
+    void testMenuCacheLayers() {
+        Long categoryId = 1397844263642378242L;
+        menuCache.evict(MenuCache.dishKey(categoryId, 1));
+
+        // 第一次请求两级缓存均未命中，第二次请求命中一级缓存，不再访问数据库
+        dishController.dishList(categoryId, 1);
+        statementCounter.reset();
+        dishController.dishList(categoryId, 1);
+
+        assertEquals(0, statementCounter.getCount());
+        System.out.println(menuCache.stats());
+    }
+
+    @Test
+    void testMenuSnapshotBuiltOncePerVersion() {
+        long version = menuSnapshotService.currentVersion();
+        MenuSnapshotDto first = menuSnapshotService.getSnapshot(version);
+
+        // 版本号未变化时直接复用已构建的快照，不再访问数据库
+        statementCounter.reset();
+        MenuSnapshotDto second = menuSnapshotService.getSnapshot(version);
+
+        assertSame(first, second);
+        assertEquals(0, statementCounter.getCount());
+    }
+
+    /**
+     * 对比命名空间代数失效与KEYS扫描失效的耗时随键空间规模的变化
+     * 键空间规模可通过 -Dbench.keys=2000000 调整
+     * 耗时较长，默认不执行，使用 -Dbench=true 运行
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "bench", matches = "true")
+    void benchmarkNamespaceInvalidation() {
+        int total = Integer.getInteger("bench.keys", 1_000_000);
+        byte[] value = "1".getBytes(StandardCharsets.UTF_8);
+        int filled = 0;
+
+        for (int size = Math.min(10_000, total); ; size = Math.min(size * 10, total)) {
+            // 向Redis中填充无关键，模拟共享实例上不断增长的键空间
+            for (int from = filled; from < size; from += 10_000) {
+                int start = from, end = Math.min(from + 10_000, size);
+                stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                    for (int i = start; i < end; i++)
+                        connection.stringCommands().set(("bench_fill_" + i).getBytes(StandardCharsets.UTF_8), value);
+                    return null;
+                });
+            }
+            filled = size;
+
+            // 命名空间代数失效：一次INCR
+            int rounds = 100;
+            long begin = System.nanoTime();
+            for (int i = 0; i < rounds; i++)
+                menuCache.evictNamespace(MenuCache.DISH_NAMESPACE);
+            long namespaceNanos = (System.nanoTime() - begin) / rounds;
+
+            // 原有的KEYS扫描失效
+            begin = System.nanoTime();
+            redisTemplate.keys("dish_*");
+            long keysNanos = System.nanoTime() - begin;
+
+            System.out.printf("keys=%d, namespace invalidation=%dus, KEYS scan=%dus%n",
+                    size, namespaceNanos / 1000, keysNanos / 1000);
+
+            if (size == total)
+                break;
+        }
+
+        // 清理填充的键
+        for (int from = 0; from < filled; from += 10_000) {
+            int start = from, end = Math.min(from + 10_000, filled);
+            stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (int i = start; i < end; i++)
+                    connection.keyCommands().del(("bench_fill_" + i).getBytes(StandardCharsets.UTF_8));
+                return null;
+            });
+        }
+    }
+
+    @Test
+    void testMenuCacheSingleFlight() throws InterruptedException {
+        String key = MenuCache.dishKey(-1L, 1);
+        menuCache.evict(key);
+
+        // 50个线程同时未命中同一个键，加载器只应执行一次
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(50);
+        for (int i = 0; i < 50; i++) {
+            executor.execute(() -> {
+                try {
+                    start.await();
+                    menuCache.get(key, () -> {
+                        loads.incrementAndGet();
+                        try {
+                            Thread.sleep(200);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        return List.of();
+                    });
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+
+        assertEquals(1, loads.get());
+        menuCache.evict(key);
+    }
+
+    /**
+     * 对比整体删除重建与差异更新在包含24个菜品的套餐上的耗时和语句数量
+     * 所有写操作都在回滚的事务中执行，不影响数据库中的数据
+     * 耗时较长，默认不执行，使用 -Dbench=true 运行
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "bench", matches = "true")
+    void benchmarkSetmealDishDiffUpdate() {
+        int dishCount = 24;
+        int rounds = 200;
+        // 插入时自动填充创建人和更新人
+        BaseContext.setCurrentId(1L);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            // 构造一个包含24个菜品的套餐
+            SetmealDto setmealDto = new SetmealDto();
+            setmealDto.setId(-1L);
+            setmealDto.setSetmealDishes(new ArrayList<>());
+            for (long i = 0; i < dishCount; i++) {
+                SetmealDish setmealDish = new SetmealDish();
+                setmealDish.setDishId(-100L - i);
+                setmealDish.setName("菜品" + i);
+                setmealDish.setPrice(new BigDecimal("18.00"));
+                setmealDish.setCopies(1);
+                setmealDish.setSort((int) i);
+                setmealDto.getSetmealDishes().add(setmealDish);
+            }
+            setmealDishService.insertSetmealDish(setmealDto);
+
+            // 只修改套餐价格时菜品组成不变：只读取一次现有菜品，不产生写操作
+            statementCounter.reset();
+            setmealDishService.updateSetmealDish(copyOf(setmealDto));
+            assertEquals(1, statementCounter.getCount());
+
+            // 整体删除后重新插入
+            long begin = System.nanoTime();
+            for (int i = 0; i < rounds; i++) {
+                setmealDishService.remove(new LambdaQueryWrapper<SetmealDish>().eq(SetmealDish::getSetmealId, setmealDto.getId()));
+                setmealDishService.insertSetmealDish(copyOf(setmealDto));
+            }
+            long rewriteMicros = (System.nanoTime() - begin) / rounds / 1000;
+
+            // 差异更新，每轮修改一个菜品的份数
+            begin = System.nanoTime();
+            for (int i = 0; i < rounds; i++) {
+                SetmealDto changed = copyOf(setmealDto);
+                changed.getSetmealDishes().get(i % dishCount).setCopies(2 + i);
+                setmealDishService.updateSetmealDish(changed);
+            }
+            long diffMicros = (System.nanoTime() - begin) / rounds / 1000;
+
+            System.out.printf("套餐菜品数=%d 整体删除重建=%dus/次 差异更新=%dus/次%n", dishCount, rewriteMicros, diffMicros);
+            status.setRollbackOnly();
+        });
+    }
+
+    /**
+     * 复制套餐及其菜品列表，避免写操作回填的ID影响下一轮
+     */
+    private SetmealDto copyOf(SetmealDto setmealDto) {
+        SetmealDto copy = new SetmealDto();
+        BeanUtils.copyProperties(setmealDto, copy);
+        copy.setSetmealDishes(setmealDto.getSetmealDishes().stream()
+                .map(setmealDish -> {
+                    SetmealDish dish = new SetmealDish();
+                    BeanUtils.copyProperties(setmealDish, dish, "id");
+                    return dish;
+                })
+                .collect(Collectors.toList()));
+        return copy;
+    }
+
+    /**
+     * 对比JDK序列化与JSONB编码在菜品列表缓存值上的编解码耗时和字节大小
+     * 耗时较长，默认不执行，使用 -Dbench=true 运行
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "bench", matches = "true")
+    void benchmarkRedisValueCodec() {
+        // 构造一个包含40个菜品、每个菜品3种口味的分类菜品列表
+        List<DishDto> dishDtos = new ArrayList<>();
+        for (long i = 0; i < 40; i++) {
+            DishDto dishDto = new DishDto();
+            dishDto.setId(1853439708533260290L + i);
+            dishDto.setName("菜品" + i);
+            dishDto.setCategoryId(1397844263642378242L);
+            dishDto.setPrice(new BigDecimal("38.00"));
+            dishDto.setCode("");
+            dishDto.setImage(UUID.randomUUID() + ".jpg");
+            dishDto.setDescription("这是一段菜品描述");
+            dishDto.setStatus(1);
+            dishDto.setSort(0);
+            dishDto.setCreateTime(LocalDateTime.now());
+            dishDto.setUpdateTime(LocalDateTime.now());
+            for (long j = 0; j < 3; j++) {
+                DishFlavor flavor = new DishFlavor();
+                flavor.setId(1853439708533260290L + i * 10 + j);
+                flavor.setDishId(dishDto.getId());
+                flavor.setName("甜味");
+                flavor.setValue("[\"无糖\",\"少糖\",\"半糖\",\"多糖\",\"全糖\"]");
+                dishDto.getFlavors().add(flavor);
+            }
+            dishDtos.add(dishDto);
+        }
+
+        RedisSerializer<Object> jdk = RedisSerializer.java();
+        RedisSerializer<Object> jsonb = new JsonbRedisSerializer();
+
+        // 编码结果可以被正确还原
+        assertEquals(dishDtos, jsonb.deserialize(jsonb.serialize(dishDtos)));
+        // 切换编码后，旧的JDK序列化数据仍可读取
+        assertEquals(dishDtos, jsonb.deserialize(jdk.serialize(dishDtos)));
+
+        for (Map.Entry<String, RedisSerializer<Object>> codec : Map.of("jdk", jdk, "jsonb", jsonb).entrySet()) {
+            RedisSerializer<Object> serializer = codec.getValue();
+            byte[] bytes = serializer.serialize(dishDtos);
+
+            // 预热
+            for (int i = 0; i < 2_000; i++)
+                serializer.deserialize(serializer.serialize(dishDtos));
+
+            int rounds = 10_000;
+            long begin = System.nanoTime();
+            for (int i = 0; i < rounds; i++)
+                serializer.serialize(dishDtos);
+            long encodeNanos = (System.nanoTime() - begin) / rounds;
+
+            begin = System.nanoTime();
+            for (int i = 0; i < rounds; i++)
+                serializer.deserialize(bytes);
+            long decodeNanos = (System.nanoTime() - begin) / rounds;
+
+            System.out.printf("%s: size=%d bytes, encode=%dus, decode=%dus%n",
+                    codec.getKey(), bytes.length, encodeNanos / 1000, decodeNanos / 1000);
+        }
+    }
+
+    @TestConfiguration
+    static class OrderEventCollectorConfig {
+        @Bean
+        public OrderEventCollector orderEventCollector() {
+            return new OrderEventCollector();
+        }
+    }
+
+    /**
+     * 收集测试期间发布的订单状态变更事件
+     */
+    static class OrderEventCollector {
+        private final List<OrderStatusChangedEvent> events = new CopyOnWriteArrayList<>();
+
+        @EventListener
+        public void onOrderStatusChanged(OrderStatusChangedEvent event) {
+            events.add(event);
+        }
+
+        void clear() {
+            events.clear();
+        }
+
+        List<OrderStatusChangedEvent> getEvents() {
+            return events;
+        }
+    }
+
+    @TestConfiguration
+    static class StatementCounterConfig {
+        @Bean
+        public StatementCounter statementCounter() {
+            return new StatementCounter();
+        }
+    }
+
+    /**
+     * 统计实际发往数据库的SQL语句条数，每次执行语句计数一次
+     * 批处理执行器中同一条语句只预编译一次，但未开启rewriteBatchedStatements时每行仍单独执行，因此按执行次数而不是预编译次数统计
+     */
+    @Intercepts({
+            @Signature(type = StatementHandler.class, method = "query", args = {Statement.class, ResultHandler.class}),
+            @Signature(type = StatementHandler.class, method = "queryCursor", args = {Statement.class}),
+            @Signature(type = StatementHandler.class, method = "update", args = {Statement.class}),
+            @Signature(type = StatementHandler.class, method = "batch", args = {Statement.class})
+    })
+    static class StatementCounter implements Interceptor {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Object intercept(Invocation invocation) throws Throwable {
+            count.incrementAndGet();
+            return invocation.proceed();
+        }
+
+        void reset() {
+            count.set(0);
+        }
+
+        int getCount() {
+            return count.get();
+        }
+    }
 }